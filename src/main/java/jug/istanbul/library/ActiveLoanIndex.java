@@ -0,0 +1,87 @@
+package jug.istanbul.library;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Active loans per member, ordered by due date (earliest first), and by copy.
+// Returned loans leave the index, so it never grows with loan history.
+// Keyed by the store's member and copy codes: slots in dense arrays instead of string-hashed maps.
+// The store resolves the codes once per operation and passes them in; each member entry also
+// keeps the copy code, so joining a member's loans to their copies needs no id lookups.
+final class ActiveLoanIndex {
+    static final Comparator<Loan> BY_DUE_DATE =
+        Comparator.comparing(Loan::dueDate).thenComparing(Loan::loanId);
+
+    // An active loan and the code (CopyTable row) of its copy
+    record Entry(Loan loan, int copyCode) {}
+
+    private static final Comparator<Entry> ENTRY_BY_DUE_DATE = Comparator.comparing(Entry::loan, BY_DUE_DATE);
+
+    private final DenseArray<NavigableSet<Entry>> activeByMember = new DenseArray<>();
+    private final DenseArray<Loan> activeByCopy = new DenseArray<>();
+
+    // Apply the transition previous -> current (previous is null for a new loan). The codes
+    // belong to previous and to current respectively; previousMember/previousCopy are ignored
+    // when previous is null.
+    void update(Loan previous, int previousMember, int previousCopy, Loan current, int member, int copy) {
+        if (previous != null && previous.isActive()) {
+            NavigableSet<Entry> active = activeByMember.get(previousMember);
+            if (active != null) {
+                active.remove(new Entry(previous, previousCopy));
+            }
+            activeByCopy.update(previousCopy, loan -> Objects.equals(loan, previous) ? null : loan);
+        }
+        if (current.isActive()) {
+            activeByMember.computeIfAbsent(member, code -> new ConcurrentSkipListSet<>(ENTRY_BY_DUE_DATE))
+                .add(new Entry(current, copy));
+            activeByCopy.set(copy, current);
+        }
+    }
+
+    Optional<Loan> activeLoanForCopy(int copyCode) {
+        return copyCode < 0 ? Optional.empty() : Optional.ofNullable(activeByCopy.get(copyCode));
+    }
+
+    // Earliest due first, with copy codes for joins
+    List<Entry> entries(int memberCode) {
+        NavigableSet<Entry> active = activeFor(memberCode);
+        return active == null ? List.of() : List.copyOf(active);
+    }
+
+    List<Loan> activeLoans(int memberCode) {
+        NavigableSet<Entry> active = activeFor(memberCode);
+        return active == null ? List.of() : active.stream().map(Entry::loan).toList();
+    }
+
+    // Only the earliest-due loan needs checking
+    boolean hasOverdue(int memberCode, LocalDateTime now) {
+        NavigableSet<Entry> active = activeFor(memberCode);
+        if (active == null) {
+            return false;
+        }
+        for (Entry earliest : active) {
+            return earliest.loan().isOverdue(now);
+        }
+        return false;
+    }
+
+    List<Loan> overdueLoans(int memberCode, LocalDateTime now) {
+        NavigableSet<Entry> active = activeFor(memberCode);
+        if (active == null) {
+            return List.of();
+        }
+        return active.stream()
+            .map(Entry::loan)
+            .takeWhile(loan -> loan.isOverdue(now))
+            .toList();
+    }
+
+    private NavigableSet<Entry> activeFor(int memberCode) {
+        return memberCode == IdDictionary.UNKNOWN ? null : activeByMember.get(memberCode);
+    }
+}
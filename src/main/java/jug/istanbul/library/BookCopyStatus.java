@@ -2,5 +2,6 @@ package jug.istanbul.library;
 
 public enum BookCopyStatus {
     AVAILABLE,
-    BORROWED
+    BORROWED,
+    ON_HOLD // set aside for the next member in the book's hold queue
 }
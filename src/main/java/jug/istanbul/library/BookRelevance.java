@@ -0,0 +1,106 @@
+package jug.istanbul.library;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Relevance scoring shared by all search backends, so rankings agree between them.
+// A field scores its trigram similarity to the query (shared / union of distinct trigrams),
+// plus a bonus when the field starts with the query; a book scores its best field.
+final class BookRelevance {
+    static final double PREFIX_BONUS = 0.25;
+
+    private BookRelevance() {} // Utility class
+
+    // Sorted distinct trigram keys of a normalized string
+    static long[] distinctTrigrams(String normalized) {
+        if (normalized.length() < 3) {
+            return new long[0];
+        }
+        long[] keys = new long[normalized.length() - 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = TrigramBookSearch.trigram(normalized, i);
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    static double score(int shared, int queryTrigrams, int fieldTrigrams, boolean prefix) {
+        double similarity = shared == 0 ? 0 : (double) shared / (queryTrigrams + fieldTrigrams - shared);
+        return similarity + (prefix ? PREFIX_BONUS : 0);
+    }
+
+    // Queries too short for trigrams: substring containment, favouring shorter fields
+    static double shortQueryScore(String field, String term) {
+        if (!field.contains(term)) {
+            return 0;
+        }
+        double coverage = field.isEmpty() ? 1 : (double) term.length() / field.length();
+        return coverage + (field.startsWith(term) ? PREFIX_BONUS : 0);
+    }
+
+    // Full scoring of one normalized field, for backends without postings
+    static double fieldScore(String field, String term, long[] queryTrigrams) {
+        if (term.length() < 3) {
+            return shortQueryScore(field, term);
+        }
+        long[] fieldTrigrams = distinctTrigrams(field);
+        int shared = 0;
+        for (long trigram : queryTrigrams) {
+            if (Arrays.binarySearch(fieldTrigrams, trigram) >= 0) {
+                shared++;
+            }
+        }
+        return score(shared, queryTrigrams.length, fieldTrigrams.length, field.startsWith(term));
+    }
+
+    // Bounded min-heap keeping the best `limit` positions: O(n log limit), never sorts everything.
+    // Ties go to the earlier position so results are deterministic.
+    static final class TopK {
+        private static final Comparator<Hit> WORST_FIRST =
+            Comparator.comparingDouble(Hit::score).thenComparing(Hit::position, Comparator.reverseOrder());
+
+        private final PriorityQueue<Hit> heap = new PriorityQueue<>(WORST_FIRST);
+        private final int limit;
+
+        TopK(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+        }
+
+        void offer(int position, double score) {
+            if (score <= 0) {
+                return;
+            }
+            if (heap.size() < limit) {
+                heap.add(new Hit(position, score));
+                return;
+            }
+            Hit worst = heap.peek();
+            if (score > worst.score() || (score == worst.score() && position < worst.position())) {
+                heap.poll();
+                heap.add(new Hit(position, score));
+            }
+        }
+
+        // Best first
+        List<Hit> drain() {
+            Hit[] hits = new Hit[heap.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                hits[i] = heap.poll();
+            }
+            return List.of(hits);
+        }
+
+        record Hit(int position, double score) {}
+    }
+}
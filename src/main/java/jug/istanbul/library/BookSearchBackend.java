@@ -0,0 +1,31 @@
+package jug.istanbul.library;
+
+import java.util.List;
+
+// Pluggable search strategy behind LibraryService.searchBooksByTitle / searchBooksByAuthor.
+// Implementations must return the same matches as BookSearchOperations: case-insensitive
+// substring matches, in the order the books were added.
+public interface BookSearchBackend {
+    // Index a new book, or re-index a book whose bookId is already known
+    void add(Book book);
+
+    // Index many books at once (e.g. the whole catalog on startup); same result as add() for
+    // each book in order, which is all this default does
+    default void addAll(List<Book> books) {
+        books.forEach(this::add);
+    }
+
+    List<Book> searchByTitle(String title);
+
+    List<Book> searchByAuthor(String author);
+
+    // Paged variants: scanning stops once limit matches (plus one look-ahead) are found.
+    // Pass a null cursor for the first page, then the previous page's nextCursor.
+    SearchPage searchByTitle(String title, String cursor, int limit);
+
+    SearchPage searchByAuthor(String author, String cursor, int limit);
+
+    // Relevance-ranked, typo-tolerant search over title and author (see BookRelevance);
+    // returns the best `limit` books, best first
+    List<ScoredBook> searchRanked(String query, int limit);
+}
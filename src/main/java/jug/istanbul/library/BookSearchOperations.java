@@ -1,30 +1,39 @@
 package jug.istanbul.library;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 // DO: Separate behavior - Book search operations
 public class BookSearchOperations {
     private BookSearchOperations() {} // Utility class
     
     // Search books by title
-    public static List<Book> searchByTitle(List<Book> books, String title) {
+    public static List<Book> searchByTitle(Collection<Book> books, String title) {
+        return streamByTitle(books, title).collect(Collectors.toList());
+    }
+    
+    // Search books by author
+    public static List<Book> searchByAuthor(Collection<Book> books, String author) {
+        return streamByAuthor(books, author).collect(Collectors.toList());
+    }
+    
+    // Lazy variants: nothing is materialized, so limit() stops the scan early
+    public static Stream<Book> streamByTitle(Collection<Book> books, String title) {
         String searchTerm = title.toLowerCase();
         return books.stream()
-            .filter(book -> book.title().toLowerCase().contains(searchTerm))
-            .collect(Collectors.toList());
+            .filter(book -> book.title().toLowerCase().contains(searchTerm));
     }
     
-    // Search books by author
-    public static List<Book> searchByAuthor(List<Book> books, String author) {
+    public static Stream<Book> streamByAuthor(Collection<Book> books, String author) {
         String searchTerm = author.toLowerCase();
         return books.stream()
-            .filter(book -> book.author().toLowerCase().contains(searchTerm))
-            .collect(Collectors.toList());
+            .filter(book -> book.author().toLowerCase().contains(searchTerm));
     }
     
     // Find available copies of a book
-    public static List<BookCopy> findAvailableCopies(List<BookCopy> copies, String bookId) {
+    public static List<BookCopy> findAvailableCopies(Collection<BookCopy> copies, String bookId) {
         return copies.stream()
             .filter(copy -> copy.bookId().equals(bookId))
             .filter(copy -> copy.status() == BookCopyStatus.AVAILABLE)
@@ -32,7 +41,7 @@ public class BookSearchOperations {
     }
     
     // Count available copies
-    public static int countAvailableCopies(List<BookCopy> copies, String bookId) {
+    public static int countAvailableCopies(Collection<BookCopy> copies, String bookId) {
         return (int) copies.stream()
             .filter(copy -> copy.bookId().equals(bookId))
             .filter(copy -> copy.status() == BookCopyStatus.AVAILABLE)
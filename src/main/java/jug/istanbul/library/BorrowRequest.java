@@ -0,0 +1,4 @@
+package jug.istanbul.library;
+
+// DO: Simple immutable data - one kiosk borrow request
+public record BorrowRequest(User member, String bookId) {}
@@ -0,0 +1,18 @@
+package jug.istanbul.library;
+
+import java.util.Optional;
+
+// DO: Simple immutable data - outcome of one borrow request (loan is empty when refused)
+public record BorrowResult(String memberId, String bookId, Optional<Loan> loan) {
+    public static BorrowResult borrowed(Loan loan, String bookId) {
+        return new BorrowResult(loan.memberId(), bookId, Optional.of(loan));
+    }
+    
+    public static BorrowResult refused(String memberId, String bookId) {
+        return new BorrowResult(memberId, bookId, Optional.empty());
+    }
+    
+    public boolean isBorrowed() {
+        return loan.isPresent();
+    }
+}
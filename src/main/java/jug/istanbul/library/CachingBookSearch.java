@@ -0,0 +1,204 @@
+package jug.istanbul.library;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded LRU cache in front of any backend for the unpaged title/author searches.
+// Keys are the lowercased query (the backends match case-insensitively, so "Clean" and
+// "clean" share an entry). Every entry carries the catalog version it was computed at;
+// add() bumps the version after the delegate has indexed the book, which invalidates all
+// entries at once - a stale entry is simply a miss and gets replaced on the next lookup.
+// Paged and ranked searches go straight to the delegate.
+//
+// Bounded twice: by entries and by the books held across all entries, so a run of short,
+// unselective queries cannot pin most of the catalog. A result larger than MAX_RESULT_BOOKS
+// is never cached. Entries live in segments picked by key hash, each an LRU with its own lock
+// and an equal share of both bounds, so concurrent hits on different queries rarely meet on a
+// lock. Small caches get one segment and are exactly LRU.
+//
+// Cached results are immutable lists shared by every caller that gets a hit.
+public class CachingBookSearch implements BookSearchBackend {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final int DEFAULT_MAX_CACHED_BOOKS = 200_000;
+    // Longer queries are rare and would pin a lot of memory per entry
+    private static final int MAX_QUERY_LENGTH = 256;
+    // Results this large come from unselective queries; caching one would crowd out many others
+    private static final int MAX_RESULT_BOOKS = 1_000;
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+
+    private record Key(boolean byAuthor, String query) {}
+
+    private record Entry(long version, List<Book> books) {}
+
+    private final BookSearchBackend delegate;
+    private final int maxEntries;
+    private final int maxCachedBooks;
+    private final Segment[] segments;
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingBookSearch(BookSearchBackend delegate, int maxEntries) {
+        this(delegate, maxEntries, DEFAULT_MAX_CACHED_BOOKS);
+    }
+
+    public CachingBookSearch(BookSearchBackend delegate, int maxEntries, int maxCachedBooks) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        if (maxCachedBooks <= 0) {
+            throw new IllegalArgumentException("Max cached books must be positive");
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.maxCachedBooks = maxCachedBooks;
+        // Power of two, and never so many that a segment's share gets too small to be an LRU
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_SEGMENT_ENTRIES)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxEntries / count, Math.max(1, maxCachedBooks / count));
+        }
+    }
+
+    @Override
+    public void add(Book book) {
+        delegate.add(book);
+        catalogVersion.incrementAndGet();
+    }
+
+    @Override
+    public void addAll(List<Book> books) {
+        delegate.addAll(books);
+        catalogVersion.incrementAndGet();
+    }
+
+    @Override
+    public List<Book> searchByTitle(String title) {
+        return cached(new Key(false, title.toLowerCase()), title);
+    }
+
+    @Override
+    public List<Book> searchByAuthor(String author) {
+        return cached(new Key(true, author.toLowerCase()), author);
+    }
+
+    @Override
+    public SearchPage searchByTitle(String title, String cursor, int limit) {
+        return delegate.searchByTitle(title, cursor, limit);
+    }
+
+    @Override
+    public SearchPage searchByAuthor(String author, String cursor, int limit) {
+        return delegate.searchByAuthor(author, cursor, limit);
+    }
+
+    @Override
+    public List<ScoredBook> searchRanked(String query, int limit) {
+        return delegate.searchRanked(query, limit);
+    }
+
+    public long catalogVersion() {
+        return catalogVersion.get();
+    }
+
+    // Sizes are summed segment by segment, so under concurrent searches they are approximate
+    public SearchCacheStats stats() {
+        int size = 0;
+        int cachedBooks = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+                cachedBooks += segment.cachedBooks;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new SearchCacheStats(hits.sum(), misses.sum(), stale.sum(), evictions.sum(),
+            size, maxEntries, cachedBooks, maxCachedBooks);
+    }
+
+    private List<Book> cached(Key key, String query) {
+        // Read the version before searching: a book added meanwhile bumps it past this one,
+        // so a result that might have missed the book is never served as current
+        long version = catalogVersion.get();
+        boolean cacheable = key.query().length() <= MAX_QUERY_LENGTH;
+        Segment segment = segmentFor(key);
+        if (cacheable) {
+            Entry entry = segment.get(key);
+            if (entry != null && entry.version() == version) {
+                hits.increment();
+                return entry.books();
+            }
+            if (entry != null) {
+                stale.increment();
+            }
+        }
+        misses.increment();
+        List<Book> books = List.copyOf(key.byAuthor() ? delegate.searchByAuthor(query) : delegate.searchByTitle(query));
+        if (cacheable && books.size() <= MAX_RESULT_BOOKS) {
+            segment.put(key, new Entry(version, books));
+        }
+        return books;
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode() * 0x9E3779B9; // Fibonacci hashing: the middle bits are well mixed
+        return segments[(h >>> 16) & (segments.length - 1)];
+    }
+
+    // One LRU: access order, the head is least recently used
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+        private final int maxCachedBooks;
+        private int cachedBooks; // guarded by lock
+
+        Segment(int maxEntries, int maxCachedBooks) {
+            this.maxEntries = maxEntries;
+            this.maxCachedBooks = maxCachedBooks;
+        }
+
+        Entry get(Key key) {
+            lock.lock();
+            try {
+                return entries.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Keeps the newer of two racing results, then evicts from the head until both bounds hold
+        void put(Key key, Entry entry) {
+            if (entry.books().size() > maxCachedBooks) {
+                return;
+            }
+            lock.lock();
+            try {
+                Entry current = entries.get(key);
+                if (current != null && current.version() >= entry.version()) {
+                    return;
+                }
+                entries.put(key, entry);
+                cachedBooks += entry.books().size() - (current == null ? 0 : current.books().size());
+                Iterator<Entry> eldest = entries.values().iterator();
+                while (entries.size() > maxEntries || cachedBooks > maxCachedBooks) {
+                    cachedBooks -= eldest.next().books().size();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package jug.istanbul.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Prefix autocomplete over titles and authors: a radix (path-compressed) trie.
+// An edge label is a range of one shared char pool, so a run of single-child nodes is one node:
+// insertion splits an edge where a new key diverges, removal frees empty leaves and folds a node
+// left with one child into that child. The trie lives in parallel primitive arrays (no object
+// per node) and a primitive hash table maps (node, first char of edge) to the child, so walking
+// a prefix is one probe per edge rather than a sibling scan per character.
+// Each node also stores the best entry in its subtree (weight, then order of arrival), which
+// lets complete() run best-first and stop after `limit` results instead of walking the subtree.
+// Keys are lowercased; the first spelling added is the one returned while the key is in use.
+public class CompletionTrie {
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+
+    private char[] pool = new char[1024];
+    private int poolSize;
+    private int liveChars;                      // pool chars still referenced by a label
+
+    private int[] labelStart = new int[256];
+    private int[] labelLength = new int[256];
+    private int[] firstChild = new int[256];
+    private int[] nextSibling = new int[256];   // also chains the free nodes
+    private int[] weight = new int[256];        // entries ending at this node
+    private int[] order = new int[256];         // arrival of this node's entry, for ties
+    private int[] maxWeight = new int[256];     // best weight in this subtree (0: none)
+    private int[] bestOrder = new int[256];     // arrival of that best entry
+    private String[] displays = new String[256];
+    private int nodes;
+    private int freeNodes = NONE;
+    private int nextOrder;
+    private final EdgeTable edges = new EdgeTable();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CompletionTrie() {
+        newNode(0, 0); // root, empty label
+    }
+
+    // Count one more entry (e.g. one more book) under this title or author
+    public void add(String value) {
+        lock.writeLock().lock();
+        try {
+            insert(value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Same as add() for each value in order, under one write lock (e.g. a catalog on startup)
+    public void addAll(List<String> values) {
+        lock.writeLock().lock();
+        try {
+            values.forEach(this::insert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void insert(String value) {
+        String key = value.toLowerCase();
+        IntList path = new IntList();
+        int node = ROOT;
+        path.add(node);
+        for (int i = 0; i < key.length(); ) {
+            int child = edges.get(node, key.charAt(i));
+            if (child == NONE) {
+                child = newNode(append(key, i), key.length() - i);
+                link(node, child);
+                i = key.length();
+            } else {
+                int common = commonLength(child, key, i);
+                if (common < labelLength[child]) {
+                    child = split(node, child, common);
+                }
+                i += common;
+            }
+            node = child;
+            path.add(node);
+        }
+        if (weight[node] == 0) {
+            displays[node] = value;
+            order[node] = nextOrder++;
+        }
+        weight[node]++;
+
+        // Only this entry got better, so ancestors stop changing at the first one it doesn't beat
+        for (int p = path.size() - 1; p >= 0; p--) {
+            int n = path.get(p);
+            if (weight[node] < maxWeight[n] || (weight[node] == maxWeight[n] && order[node] > bestOrder[n])) {
+                break;
+            }
+            maxWeight[n] = weight[node];
+            bestOrder[n] = order[node];
+        }
+    }
+
+    // Count one entry less (e.g. a book was renamed); unknown values are ignored
+    public void remove(String value) {
+        String key = value.toLowerCase();
+        lock.writeLock().lock();
+        try {
+            IntList path = new IntList();
+            int node = ROOT;
+            path.add(node);
+            for (int i = 0; i < key.length(); ) {
+                int child = edges.get(node, key.charAt(i));
+                if (child == NONE || i + labelLength[child] > key.length()
+                        || commonLength(child, key, i) < labelLength[child]) {
+                    return;
+                }
+                i += labelLength[child];
+                node = child;
+                path.add(node);
+            }
+            if (weight[node] == 0) {
+                return;
+            }
+            if (--weight[node] == 0) {
+                displays[node] = null;
+                order[node] = NONE;
+            }
+
+            // Every node other than the root keeps an entry or at least two children
+            int p = path.size() - 1;
+            while (p > 0 && weight[node] == 0 && firstChild[node] == NONE) {
+                int parent = path.get(p - 1);
+                unlink(parent, node);
+                freeNode(node);
+                node = parent;
+                p--;
+            }
+            if (p > 0 && weight[node] == 0 && firstChild[node] != NONE && nextSibling[firstChild[node]] == NONE) {
+                merge(path.get(p - 1), node);
+                p--;
+            }
+            for (; p >= 0; p--) {
+                refreshBest(path.get(p));
+            }
+            if (poolSize > 2 * liveChars + 1024) {
+                compactPool();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Up to `limit` completions of prefix, highest weight first (ties: first added first)
+    public List<String> complete(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String key = prefix.toLowerCase();
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>(Math.min(limit, 16));
+            int node = ROOT;
+            for (int i = 0; i < key.length(); ) {
+                int child = edges.get(node, key.charAt(i));
+                if (child == NONE) {
+                    return result;
+                }
+                int length = Math.min(labelLength[child], key.length() - i); // prefix may end mid-edge
+                if (commonLength(child, key, i) < length) {
+                    return result;
+                }
+                i += length;
+                node = child;
+            }
+            if (maxWeight[node] == 0) {
+                return result;
+            }
+
+            // Entries are subtrees (keyed by their best entry) or finished completions (~node).
+            // The entries in the heap cover disjoint parts of the trie and orders are unique,
+            // so completions leave the heap exactly in result order.
+            Heap heap = new Heap();
+            heap.push(priority(maxWeight[node], bestOrder[node]), node);
+            while (!heap.isEmpty() && result.size() < limit) {
+                int entry = heap.pop();
+                if (entry < 0) {
+                    result.add(displays[~entry]);
+                    continue;
+                }
+                if (weight[entry] > 0) {
+                    heap.push(priority(weight[entry], order[entry]), ~entry);
+                }
+                for (int c = firstChild[entry]; c != NONE; c = nextSibling[c]) {
+                    if (maxWeight[c] > 0) {
+                        heap.push(priority(maxWeight[c], bestOrder[c]), c);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Live nodes, root included
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            int free = 0;
+            for (int n = freeNodes; n != NONE; n = nextSibling[n]) {
+                free++;
+            }
+            return nodes - free;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Smaller is better: higher weight first, then earlier arrival
+    private static long priority(int weight, int order) {
+        return ((long) (Integer.MAX_VALUE - weight) << 32) | order;
+    }
+
+    private int commonLength(int node, String key, int from) {
+        int start = labelStart[node];
+        int length = Math.min(labelLength[node], key.length() - from);
+        int i = 0;
+        while (i < length && pool[start + i] == key.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // Splits child's edge after `common` chars; the new node takes child's place under parent
+    private int split(int parent, int child, int common) {
+        int middle = newNode(labelStart[child], common);
+        labelStart[child] += common;
+        labelLength[child] -= common;
+        liveChars -= common;
+        replaceChild(parent, child, middle);
+        firstChild[middle] = child;
+        nextSibling[child] = NONE;
+        edges.put(middle, pool[labelStart[child]], child);
+        maxWeight[middle] = maxWeight[child];
+        bestOrder[middle] = bestOrder[child];
+        return middle;
+    }
+
+    // node has no entry and one child: the child takes over node's label and place under parent
+    private void merge(int parent, int node) {
+        int child = firstChild[node];
+        int head = labelLength[node];
+        int tail = labelLength[child];
+        ensurePool(head + tail);
+        System.arraycopy(pool, labelStart[node], pool, poolSize, head);
+        System.arraycopy(pool, labelStart[child], pool, poolSize + head, tail);
+        edges.remove(node, pool[labelStart[child]]);
+        labelStart[child] = poolSize;
+        labelLength[child] = head + tail;
+        poolSize += head + tail;
+        liveChars += head;
+        replaceChild(parent, node, child);
+        freeNode(node);
+    }
+
+    private void refreshBest(int node) {
+        int best = weight[node];
+        int bestAt = weight[node] > 0 ? order[node] : NONE;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            if (maxWeight[c] > best || (maxWeight[c] == best && best > 0 && bestOrder[c] < bestAt)) {
+                best = maxWeight[c];
+                bestAt = bestOrder[c];
+            }
+        }
+        maxWeight[node] = best;
+        bestOrder[node] = bestAt;
+    }
+
+    private void link(int parent, int child) {
+        nextSibling[child] = firstChild[parent];
+        firstChild[parent] = child;
+        edges.put(parent, pool[labelStart[child]], child);
+    }
+
+    private void unlink(int parent, int child) {
+        if (firstChild[parent] == child) {
+            firstChild[parent] = nextSibling[child];
+        } else {
+            int c = firstChild[parent];
+            while (nextSibling[c] != child) {
+                c = nextSibling[c];
+            }
+            nextSibling[c] = nextSibling[child];
+        }
+        edges.remove(parent, pool[labelStart[child]]);
+    }
+
+    // replacement's label starts with the same char as old's
+    private void replaceChild(int parent, int old, int replacement) {
+        nextSibling[replacement] = nextSibling[old];
+        if (firstChild[parent] == old) {
+            firstChild[parent] = replacement;
+        } else {
+            int c = firstChild[parent];
+            while (nextSibling[c] != old) {
+                c = nextSibling[c];
+            }
+            nextSibling[c] = replacement;
+        }
+        edges.put(parent, pool[labelStart[replacement]], replacement);
+    }
+
+    private int append(String key, int from) {
+        int length = key.length() - from;
+        ensurePool(length);
+        key.getChars(from, key.length(), pool, poolSize);
+        int start = poolSize;
+        poolSize += length;
+        return start;
+    }
+
+    private void ensurePool(int extra) {
+        if (poolSize + extra > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + extra));
+        }
+    }
+
+    // Splits, merges and removals leave unreferenced chars behind; copy the live labels over
+    private void compactPool() {
+        char[] compacted = new char[Math.max(1024, liveChars * 2)];
+        int size = 0;
+        IntList pending = new IntList();
+        pending.add(ROOT);
+        while (!pending.isEmpty()) {
+            int node = pending.removeLast();
+            System.arraycopy(pool, labelStart[node], compacted, size, labelLength[node]);
+            labelStart[node] = size;
+            size += labelLength[node];
+            for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+                pending.add(c);
+            }
+        }
+        pool = compacted;
+        poolSize = size;
+    }
+
+    private int newNode(int start, int length) {
+        int node;
+        if (freeNodes != NONE) {
+            node = freeNodes;
+            freeNodes = nextSibling[node];
+        } else {
+            if (nodes == labelStart.length) {
+                int capacity = nodes * 2;
+                labelStart = Arrays.copyOf(labelStart, capacity);
+                labelLength = Arrays.copyOf(labelLength, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                order = Arrays.copyOf(order, capacity);
+                maxWeight = Arrays.copyOf(maxWeight, capacity);
+                bestOrder = Arrays.copyOf(bestOrder, capacity);
+                displays = Arrays.copyOf(displays, capacity);
+            }
+            node = nodes++;
+        }
+        labelStart[node] = start;
+        labelLength[node] = length;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        weight[node] = 0;
+        order[node] = NONE;
+        maxWeight[node] = 0;
+        bestOrder[node] = NONE;
+        displays[node] = null;
+        liveChars += length;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        liveChars -= labelLength[node];
+        labelLength[node] = 0;
+        displays[node] = null;
+        nextSibling[node] = freeNodes;
+        freeNodes = node;
+    }
+
+    // (node, first char of edge) -> child; open addressing with linear probing
+    private static final class EdgeTable {
+        private static final long EMPTY = -1L;
+
+        private long[] keys = emptyKeys(64);
+        private int[] children = new int[64];
+        private int size;
+
+        int get(int node, char first) {
+            long key = key(node, first);
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return children[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return NONE;
+                }
+            }
+        }
+
+        void put(int node, char first, int child) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            long key = key(node, first);
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            }
+            children[slot] = child;
+        }
+
+        // Backward-shift deletion keeps probe runs unbroken without tombstones
+        void remove(int node, char first) {
+            long key = key(node, first);
+            int mask = keys.length - 1;
+            int hole = slot(key, mask);
+            while (keys[hole] != key) {
+                if (keys[hole] == EMPTY) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+            for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = slot(keys[i], mask);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    children[hole] = children[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = EMPTY;
+            size--;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldChildren = children;
+            keys = emptyKeys(oldKeys.length * 2);
+            children = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i], mask);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    children[slot] = oldChildren[i];
+                }
+            }
+        }
+
+        private static long key(int node, char first) {
+            return ((long) node << 16) | first;
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+
+        private static long[] emptyKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+
+    // Binary min-heap of (priority, entry) pairs without boxing
+    private static final class Heap {
+        private long[] priorities = new long[16];
+        private int[] entries = new int[16];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long priority, int entry) {
+            if (size == priorities.length) {
+                priorities = Arrays.copyOf(priorities, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (priorities[parent] <= priority) {
+                    break;
+                }
+                priorities[i] = priorities[parent];
+                entries[i] = entries[parent];
+                i = parent;
+            }
+            priorities[i] = priority;
+            entries[i] = entry;
+        }
+
+        int pop() {
+            int top = entries[0];
+            long priority = priorities[--size];
+            int entry = entries[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                    child++;
+                }
+                if (priorities[child] >= priority) {
+                    break;
+                }
+                priorities[i] = priorities[child];
+                entries[i] = entries[child];
+                i = child;
+            }
+            priorities[i] = priority;
+            entries[i] = entry;
+            return top;
+        }
+    }
+}
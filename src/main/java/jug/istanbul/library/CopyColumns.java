@@ -0,0 +1,155 @@
+package jug.istanbul.library;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+// Immutable, columnar copy list for LibrarySnapshot - the versioned counterpart of CopyTable.
+//   by position: copy code, in the order copies were first published
+//   by copy code: book code (NO_BOOK until published), borrowed and on-hold bits (64 per long)
+// Columns are split into fixed-size chunks; an Editor copies only the chunks its changes touch
+// and shares the rest with the version it started from, so a version costs a few small arrays,
+// not an object per copy. BookCopy records are only built by get().
+final class CopyColumns extends AbstractList<BookCopy> implements RandomAccess {
+    private static final int NO_BOOK = -1;
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_WORDS = CHUNK_SIZE / Long.SIZE;
+
+    private final IdDictionary copyIds;
+    private final IdDictionary bookIds;
+    private final int[][] codeAt;
+    private final int[][] bookOfCode;
+    private final long[][] borrowed;
+    private final long[][] held;
+    private final int size;
+
+    private CopyColumns(IdDictionary copyIds, IdDictionary bookIds, int[][] codeAt, int[][] bookOfCode,
+                        long[][] borrowed, long[][] held, int size) {
+        this.copyIds = copyIds;
+        this.bookIds = bookIds;
+        this.codeAt = codeAt;
+        this.bookOfCode = bookOfCode;
+        this.borrowed = borrowed;
+        this.held = held;
+        this.size = size;
+    }
+
+    static CopyColumns empty(IdDictionary copyIds, IdDictionary bookIds) {
+        return new CopyColumns(copyIds, bookIds, new int[0][], new int[0][], new long[0][], new long[0][], 0);
+    }
+
+    @Override
+    public BookCopy get(int index) {
+        Objects.checkIndex(index, size);
+        int code = codeAt[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        return new BookCopy(copyIds.id(code), bookIds.id(bookOfCode[code >>> CHUNK_BITS][code & CHUNK_MASK]), status(code));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    Editor edit() {
+        return new Editor();
+    }
+
+    // Borrowed wins, as in CopyTable
+    private BookCopyStatus status(int code) {
+        if (bit(borrowed, code)) {
+            return BookCopyStatus.BORROWED;
+        }
+        return bit(held, code) ? BookCopyStatus.ON_HOLD : BookCopyStatus.AVAILABLE;
+    }
+
+    private static boolean bit(long[][] column, int code) {
+        int chunk = code >>> CHUNK_BITS;
+        return chunk < column.length && (column[chunk][(code & CHUNK_MASK) >>> 6] & (1L << code)) != 0;
+    }
+
+    // Builds the next version; single-threaded. Chunks created by this editor are written in
+    // place, every other chunk is copied before its first write.
+    final class Editor {
+        private int[][] codeAt = CopyColumns.this.codeAt.clone();
+        private int[][] bookOfCode = CopyColumns.this.bookOfCode.clone();
+        private long[][] borrowed = CopyColumns.this.borrowed.clone();
+        private long[][] held = CopyColumns.this.held.clone();
+        private int size = CopyColumns.this.size;
+        private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // Publish the state of one copy; a code seen for the first time is appended
+        void put(int code, int bookCode, BookCopyStatus status) {
+            int chunk = code >>> CHUNK_BITS;
+            if (chunk >= bookOfCode.length || bookOfCode[chunk] == null
+                    || bookOfCode[chunk][code & CHUNK_MASK] == NO_BOOK) {
+                writableBooks(chunk)[code & CHUNK_MASK] = bookCode;
+                writableCodes(size >>> CHUNK_BITS)[size & CHUNK_MASK] = code;
+                size++;
+            }
+            borrowed = setBit(borrowed, code, status == BookCopyStatus.BORROWED);
+            held = setBit(held, code, status == BookCopyStatus.ON_HOLD);
+        }
+
+        CopyColumns freeze() {
+            return new CopyColumns(copyIds, bookIds, codeAt, bookOfCode, borrowed, held, size);
+        }
+
+        private long[][] setBit(long[][] column, int code, boolean value) {
+            if (value == bit(column, code)) {
+                return column; // unchanged: no chunk copy
+            }
+            int chunk = code >>> CHUNK_BITS;
+            if (chunk >= column.length) {
+                int length = column.length;
+                column = Arrays.copyOf(column, Math.max(chunk + 1, length * 2));
+                for (int i = length; i < column.length; i++) {
+                    column[i] = adopt(new long[CHUNK_WORDS]);
+                }
+            }
+            long[] words = column[chunk] = own(column[chunk]);
+            int word = (code & CHUNK_MASK) >>> 6;
+            words[word] = value ? words[word] | (1L << code) : words[word] & ~(1L << code);
+            return column;
+        }
+
+        private int[] writableCodes(int chunk) {
+            if (chunk >= codeAt.length) {
+                codeAt = Arrays.copyOf(codeAt, Math.max(chunk + 1, codeAt.length * 2));
+            }
+            codeAt[chunk] = codeAt[chunk] == null ? adopt(new int[CHUNK_SIZE]) : own(codeAt[chunk]);
+            return codeAt[chunk];
+        }
+
+        private int[] writableBooks(int chunk) {
+            if (chunk >= bookOfCode.length) {
+                bookOfCode = Arrays.copyOf(bookOfCode, Math.max(chunk + 1, bookOfCode.length * 2));
+            }
+            if (bookOfCode[chunk] == null) {
+                int[] books = new int[CHUNK_SIZE];
+                Arrays.fill(books, NO_BOOK);
+                bookOfCode[chunk] = adopt(books);
+            }
+            bookOfCode[chunk] = own(bookOfCode[chunk]);
+            return bookOfCode[chunk];
+        }
+
+        private int[] own(int[] chunk) {
+            return owned.contains(chunk) ? chunk : adopt(chunk.clone());
+        }
+
+        private long[] own(long[] chunk) {
+            return owned.contains(chunk) ? chunk : adopt(chunk.clone());
+        }
+
+        private <A> A adopt(A chunk) {
+            owned.add(chunk);
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package jug.istanbul.library;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Columnar (struct-of-arrays) copy store: one row per copy, one slot per book.
+// Rows are copyId codes and book slots are bookId codes from the store's IdDictionaries.
+//   copy columns: book code (NO_BOOK for an unused row), borrowed and on-hold bits (packed 64 per long)
+//   book columns: rows of its copies, available-copy count
+// A status change flips a bit or two and adjusts one counter - no BookCopy is allocated;
+// BookCopy records are only built as views when a caller asks for one.
+//
+// Locking: appending rows/books (which may grow the arrays) takes the write lock; everything
+// else takes the read lock. Status changes and per-book reads must also hold the book's
+// stripe in LibraryStore, which serializes them per book; the bitset is atomic because
+// neighbouring rows of different books share a word.
+final class CopyTable {
+    private static final int NO_BOOK = -1;
+
+    private final IdDictionary copyIds;
+    private final IdDictionary bookIds;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Copy columns
+    private int[] bookNoOfRow = newBookColumn(64);
+    private AtomicLongArray borrowed = new AtomicLongArray(1);
+    private AtomicLongArray held = new AtomicLongArray(1);
+    private int count;
+
+    // Book columns
+    private IntList[] rowsOfBook = new IntList[64];
+    private int[] availableOfBook = new int[64];
+
+    CopyTable(IdDictionary copyIds, IdDictionary bookIds) {
+        this.copyIds = copyIds;
+        this.bookIds = bookIds;
+    }
+
+    // Row of a copy, or -1
+    int rowOf(String copyId) {
+        int row = copyIds.code(copyId);
+        if (row == IdDictionary.UNKNOWN) {
+            return -1;
+        }
+        lock.readLock().lock();
+        try {
+            return row < bookNoOfRow.length && bookNoOfRow[row] != NO_BOOK ? row : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Whether a copy code has a row (codes can also come from loans of unknown copies)
+    boolean isCopy(int code) {
+        lock.readLock().lock();
+        try {
+            return code >= 0 && code < bookNoOfRow.length && bookNoOfRow[code] != NO_BOOK;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int bookCodeOf(int row) {
+        lock.readLock().lock();
+        try {
+            return bookNoOfRow[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    String bookIdOf(int row) {
+        lock.readLock().lock();
+        try {
+            return bookIds.id(bookNoOfRow[row]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    BookCopyStatus status(int row) {
+        lock.readLock().lock();
+        try {
+            return statusLocked(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Insert a new copy with its status; returns its row, or -1 if the copyId already has one
+    // (under any book), which is left untouched - a re-put must never reset a lent or held
+    // copy to AVAILABLE. Caller holds the book's stripe.
+    int insert(BookCopy copy) {
+        if (rowOf(copy.copyId()) >= 0) {
+            return -1;
+        }
+        int row = append(copy);
+        if (row >= 0 && copy.status() != BookCopyStatus.AVAILABLE) {
+            setStatus(row, copy.status());
+        }
+        return row;
+    }
+
+    // Flip the status bits and keep the book's available count in step. Caller holds the book's stripe.
+    void setStatus(int row, BookCopyStatus status) {
+        lock.readLock().lock();
+        try {
+            BookCopyStatus previous = statusLocked(row);
+            // Set before clearing, so a lock-free view never sees AVAILABLE between two other states
+            if (status == BookCopyStatus.BORROWED) {
+                setBit(borrowed, row, true);
+            }
+            if (status == BookCopyStatus.ON_HOLD) {
+                setBit(held, row, true);
+            }
+            if (status != BookCopyStatus.BORROWED) {
+                setBit(borrowed, row, false);
+            }
+            if (status != BookCopyStatus.ON_HOLD) {
+                setBit(held, row, false);
+            }
+            if ((previous == BookCopyStatus.AVAILABLE) != (status == BookCopyStatus.AVAILABLE)) {
+                availableOfBook[bookNoOfRow[row]] += status == BookCopyStatus.AVAILABLE ? 1 : -1;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the book's stripe for the per-book reads below
+    int firstAvailableRow(String bookId) {
+        return firstAvailableRow(bookIds.code(bookId));
+    }
+
+    int firstAvailableRow(int bookCode) {
+        lock.readLock().lock();
+        try {
+            int bookNo = bookNoOf(bookCode);
+            if (bookNo < 0 || availableOfBook[bookNo] == 0) {
+                return -1;
+            }
+            IntList bookRows = rowsOfBook[bookNo];
+            for (int i = 0; i < bookRows.size(); i++) {
+                int row = bookRows.get(i);
+                if (isFree(row)) {
+                    return row;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int availableCount(String bookId) {
+        lock.readLock().lock();
+        try {
+            int bookNo = bookNoOf(bookId);
+            return bookNo < 0 ? 0 : availableOfBook[bookNo];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<BookCopy> available(String bookId) {
+        lock.readLock().lock();
+        try {
+            int bookNo = bookNoOf(bookId);
+            if (bookNo < 0 || availableOfBook[bookNo] == 0) {
+                return List.of();
+            }
+            List<BookCopy> result = new ArrayList<>(availableOfBook[bookNo]);
+            IntList bookRows = rowsOfBook[bookNo];
+            for (int i = 0; i < bookRows.size(); i++) {
+                int row = bookRows.get(i);
+                if (isFree(row)) {
+                    result.add(viewLocked(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // BookCopy view of a row, built on demand
+    BookCopy view(int row) {
+        lock.readLock().lock();
+        try {
+            return viewLocked(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Read-only, weakly consistent views in row order
+    Collection<BookCopy> copies() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<BookCopy> iterator() {
+                return rowIterator();
+            }
+
+            @Override
+            public int size() {
+                return copyCount();
+            }
+        };
+    }
+
+    Map<String, BookCopy> copiesById() {
+        return new AbstractMap<>() {
+            @Override
+            public BookCopy get(Object copyId) {
+                int row = copyId instanceof String id ? rowOf(id) : -1;
+                return row < 0 ? null : view(row);
+            }
+
+            @Override
+            public boolean containsKey(Object copyId) {
+                return copyId instanceof String id && rowOf(id) >= 0;
+            }
+
+            @Override
+            public Set<Entry<String, BookCopy>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, BookCopy>> iterator() {
+                        Iterator<BookCopy> copies = rowIterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return copies.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, BookCopy> next() {
+                                BookCopy copy = copies.next();
+                                return Map.entry(copy.copyId(), copy);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return copyCount();
+                    }
+                };
+            }
+        };
+    }
+
+    // Rows in code order, skipping codes that are not copies (e.g. only seen on a loan)
+    private Iterator<BookCopy> rowIterator() {
+        return new Iterator<>() {
+            private int row = nextRow(0);
+
+            @Override
+            public boolean hasNext() {
+                return row >= 0;
+            }
+
+            @Override
+            public BookCopy next() {
+                if (row < 0) {
+                    throw new NoSuchElementException();
+                }
+                BookCopy copy = view(row);
+                row = nextRow(row + 1);
+                return copy;
+            }
+        };
+    }
+
+    private int nextRow(int from) {
+        lock.readLock().lock();
+        try {
+            for (int row = from; row < bookNoOfRow.length; row++) {
+                if (bookNoOfRow[row] != NO_BOOK) {
+                    return row;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read or write lock
+    private BookCopy viewLocked(int row) {
+        return new BookCopy(copyIds.id(row), bookIds.id(bookNoOfRow[row]), statusLocked(row));
+    }
+
+    // Caller holds the read or write lock; borrowed wins while a claim moves ON_HOLD -> BORROWED
+    private BookCopyStatus statusLocked(int row) {
+        long bit = 1L << row;
+        if ((borrowed.get(row >>> 6) & bit) != 0) {
+            return BookCopyStatus.BORROWED;
+        }
+        return (held.get(row >>> 6) & bit) != 0 ? BookCopyStatus.ON_HOLD : BookCopyStatus.AVAILABLE;
+    }
+
+    // Caller holds the read or write lock
+    private boolean isFree(int row) {
+        return ((borrowed.get(row >>> 6) | held.get(row >>> 6)) & (1L << row)) == 0;
+    }
+
+    private static void setBit(AtomicLongArray bits, int row, boolean value) {
+        long bit = 1L << row;
+        if (value) {
+            bits.getAndAccumulate(row >>> 6, bit, (word, b) -> word | b);
+        } else {
+            bits.getAndAccumulate(row >>> 6, ~bit, (word, b) -> word & b);
+        }
+    }
+
+    private int append(BookCopy copy) {
+        int row = copyIds.intern(copy.copyId());
+        int bookNo = bookIds.intern(copy.bookId());
+        lock.writeLock().lock();
+        try {
+            if (row < bookNoOfRow.length && bookNoOfRow[row] != NO_BOOK) {
+                // Same new copyId under two different books' stripes: the first append wins
+                return -1;
+            }
+            if (row >= bookNoOfRow.length) {
+                int capacity = Math.max(row + 1, bookNoOfRow.length * 2);
+                int[] grown = newBookColumn(capacity);
+                System.arraycopy(bookNoOfRow, 0, grown, 0, bookNoOfRow.length);
+                bookNoOfRow = grown;
+            }
+            if ((row >>> 6) >= borrowed.length()) {
+                int words = Math.max((row >>> 6) + 1, borrowed.length() * 2);
+                borrowed = grow(borrowed, words);
+                held = grow(held, words);
+            }
+            if (bookNo >= rowsOfBook.length) {
+                int capacity = Math.max(bookNo + 1, rowsOfBook.length * 2);
+                rowsOfBook = Arrays.copyOf(rowsOfBook, capacity);
+                availableOfBook = Arrays.copyOf(availableOfBook, capacity);
+            }
+            if (rowsOfBook[bookNo] == null) {
+                rowsOfBook[bookNo] = new IntList();
+            }
+            bookNoOfRow[row] = bookNo;
+            rowsOfBook[bookNo].add(row);
+            availableOfBook[bookNo]++; // new rows start AVAILABLE (bits clear)
+            count++;
+            return row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the read or write lock
+    private int bookNoOf(String bookId) {
+        return bookNoOf(bookIds.code(bookId));
+    }
+
+    private int bookNoOf(int bookCode) {
+        return bookCode < rowsOfBook.length && bookCode >= 0 && rowsOfBook[bookCode] != null ? bookCode : -1;
+    }
+
+    private int copyCount() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static AtomicLongArray grow(AtomicLongArray bits, int words) {
+        AtomicLongArray grown = new AtomicLongArray(words);
+        for (int i = 0; i < bits.length(); i++) {
+            grown.set(i, bits.get(i));
+        }
+        return grown;
+    }
+
+    private static int[] newBookColumn(int capacity) {
+        int[] column = new int[capacity];
+        Arrays.fill(column, NO_BOOK);
+        return column;
+    }
+}
@@ -0,0 +1,204 @@
+package jug.istanbul.library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Streaming CSV import: the calling thread reads the file through a FileChannel into a fixed
+// buffer and cuts it into chunks of whole lines; chunks are parsed and validated in parallel
+// on the common pool; the calling thread hands the parsed rows to the sink in file order.
+// At most MAX_IN_FLIGHT chunks exist at a time, so memory stays bounded whatever the file
+// size. Rows the parser or the sink rejects with IllegalArgumentException are reported and
+// skipped.
+//
+// The first line is a header and is skipped. Fields follow RFC 4180 (quotes around fields
+// with commas, "" for a quote) except that a field cannot contain a line break.
+final class CsvImport {
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+
+    private CsvImport() {} // Utility class
+
+    private record Row<T>(int line, T value) {}
+
+    private record Chunk<T>(int lines, List<Row<T>> rows, List<ImportReport.RowError> errors) {}
+
+    // parser gets the fields of one line; sink receives each parsed row, in file order
+    static <T> ImportReport run(Path file, Function<List<String>, T> parser, Consumer<T> sink) throws IOException {
+        Deque<CompletableFuture<Chunk<T>>> inFlight = new ArrayDeque<>();
+        Tally tally = new Tally();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+            byte[] pending = new byte[0]; // tail of the last read, up to its first line break
+            boolean header = true;
+            while (channel.read(buffer.clear()) >= 0) {
+                buffer.flip();
+                int end = lastLineBreak(buffer);
+                if (end < 0) {
+                    pending = concat(pending, buffer, buffer.limit()); // line longer than the buffer
+                    continue;
+                }
+                byte[] chunk = concat(pending, buffer, end + 1);
+                pending = Arrays.copyOfRange(buffer.array(), end + 1, buffer.limit());
+                submit(inFlight, chunk, header, parser, tally, sink);
+                header = false;
+            }
+            if (pending.length > 0) {
+                submit(inFlight, pending, header, parser, tally, sink);
+            }
+            while (!inFlight.isEmpty()) {
+                tally.apply(join(inFlight.removeFirst()), sink);
+            }
+        }
+        return tally.report();
+    }
+
+    // Fields of one line
+    static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field");
+                }
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? line.length() : comma;
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++; // the comma
+        }
+    }
+
+    // Waits for the oldest chunk once MAX_IN_FLIGHT are queued, so reading never runs far ahead
+    private static <T> void submit(Deque<CompletableFuture<Chunk<T>>> inFlight, byte[] bytes, boolean header,
+                                   Function<List<String>, T> parser, Tally tally, Consumer<T> sink) {
+        if (inFlight.size() >= MAX_IN_FLIGHT) {
+            tally.apply(join(inFlight.removeFirst()), sink);
+        }
+        inFlight.addLast(CompletableFuture.supplyAsync(() -> parse(bytes, header, parser)));
+    }
+
+    // Line numbers in the result are relative to the chunk (0-based)
+    private static <T> Chunk<T> parse(byte[] bytes, boolean header, Function<List<String>, T> parser) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        List<Row<T>> rows = new ArrayList<>();
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        int line = 0;
+        for (int start = 0; start < text.length(); line++) {
+            int newline = text.indexOf('\n', start);
+            int end = newline < 0 ? text.length() : newline;
+            String content = text.substring(start, end > start && text.charAt(end - 1) == '\r' ? end - 1 : end);
+            start = end + 1;
+            if ((header && line == 0) || content.isBlank()) {
+                continue;
+            }
+            try {
+                rows.add(new Row<>(line, parser.apply(fields(content))));
+            } catch (IllegalArgumentException e) {
+                errors.add(new ImportReport.RowError(line, e.getMessage()));
+            }
+        }
+        return new Chunk<>(line, rows, errors);
+    }
+
+    private static <T> Chunk<T> join(CompletableFuture<Chunk<T>> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int lastLineBreak(ByteBuffer buffer) {
+        for (int i = buffer.limit() - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] concat(byte[] head, ByteBuffer buffer, int length) {
+        byte[] bytes = Arrays.copyOf(head, head.length + length);
+        System.arraycopy(buffer.array(), 0, bytes, head.length, length);
+        return bytes;
+    }
+
+    // Consumer-side state: runs on the calling thread only, one chunk at a time in file order
+    private static final class Tally {
+        private long firstLine = 1;
+        private long imported;
+        private long rejected;
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+
+        <T> void apply(Chunk<T> chunk, Consumer<T> sink) {
+            // Merge parse errors and sink errors back into line order
+            int nextError = 0;
+            for (Row<T> row : chunk.rows()) {
+                while (nextError < chunk.errors().size() && chunk.errors().get(nextError).line() < row.line()) {
+                    reject(chunk.errors().get(nextError++));
+                }
+                try {
+                    sink.accept(row.value());
+                    imported++;
+                } catch (IllegalArgumentException e) {
+                    reject(new ImportReport.RowError(row.line(), e.getMessage()));
+                }
+            }
+            while (nextError < chunk.errors().size()) {
+                reject(chunk.errors().get(nextError++));
+            }
+            firstLine += chunk.lines();
+        }
+
+        ImportReport report() {
+            return new ImportReport(imported, rejected, List.copyOf(errors));
+        }
+
+        private void reject(ImportReport.RowError error) {
+            rejected++;
+            if (errors.size() < ImportReport.MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(firstLine + error.line(), error.message()));
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jug.istanbul.library;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+// Concurrent array indexed by dense int keys (IdDictionary codes), grown in fixed chunks.
+// Growing only appends chunks, so readers never lock and no write is lost to a resize.
+// update() serializes per slot through a small set of monitors hashed by index, so writers
+// of neighbouring codes (e.g. members registered one after another) rarely share one.
+final class DenseArray<T> {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int LOCK_BITS = 6;
+
+    private volatile AtomicReferenceArray<T>[] chunks = newChunks(0);
+    private final Object[] slotLocks = new Object[1 << LOCK_BITS];
+
+    DenseArray() {
+        for (int i = 0; i < slotLocks.length; i++) {
+            slotLocks[i] = new Object();
+        }
+    }
+
+    // null for an index never set
+    T get(int index) {
+        AtomicReferenceArray<T>[] current = chunks;
+        int chunk = index >>> CHUNK_BITS;
+        return chunk < current.length ? current[chunk].get(index & CHUNK_MASK) : null;
+    }
+
+    void set(int index, T value) {
+        chunk(index).set(index & CHUNK_MASK, value);
+    }
+
+    T computeIfAbsent(int index, IntFunction<T> create) {
+        AtomicReferenceArray<T> chunk = chunk(index);
+        T value = chunk.get(index & CHUNK_MASK);
+        if (value != null) {
+            return value;
+        }
+        synchronized (lockFor(index)) {
+            value = chunk.get(index & CHUNK_MASK);
+            if (value == null) {
+                value = create.apply(index);
+                chunk.set(index & CHUNK_MASK, value);
+            }
+            return value;
+        }
+    }
+
+    // Atomic read-modify-write of one slot; update runs exactly once (side effects allowed)
+    T update(int index, UnaryOperator<T> update) {
+        AtomicReferenceArray<T> chunk = chunk(index);
+        synchronized (lockFor(index)) {
+            T value = update.apply(chunk.get(index & CHUNK_MASK));
+            chunk.set(index & CHUNK_MASK, value);
+            return value;
+        }
+    }
+
+    // Fibonacci hashing spreads consecutive indexes over all the monitors
+    private Object lockFor(int index) {
+        return slotLocks[(index * 0x9E3779B9) >>> (Integer.SIZE - LOCK_BITS)];
+    }
+
+    private AtomicReferenceArray<T> chunk(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        AtomicReferenceArray<T>[] current = chunks;
+        if (chunk < current.length) {
+            return current[chunk];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (chunk >= current.length) {
+                AtomicReferenceArray<T>[] grown = newChunks(Math.max(chunk + 1, current.length * 2));
+                System.arraycopy(current, 0, grown, 0, current.length);
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+                }
+                chunks = grown;
+                current = grown;
+            }
+            return current[chunk];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> AtomicReferenceArray<T>[] newChunks(int length) {
+        return (AtomicReferenceArray<T>[]) new AtomicReferenceArray<?>[length];
+    }
+}
@@ -0,0 +1,186 @@
+package jug.istanbul.library;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bucketed due-date index over active loans that are not overdue yet (one bucket per hour).
+// advance(now) moves every loan due before now out of the buckets, in due-date order, at a
+// cost proportional to the loans that expired; each of them sets its member's overdue flag
+// in the EligibilityIndex and is queued for the notification job (at most MAX_UNREPORTED
+// are kept; past that the oldest are dropped, the members' flags are unaffected).
+//
+// Loan writes touch only their bucket's concurrent set. The lock is for advance and for the
+// two rare write paths that meet it: a loan that had been drained already, and a loan added
+// to an hour advance has moved past (see frontier).
+//
+// Time must not go backwards between advance calls: a member's flag reflects the latest now.
+final class DueDateIndex {
+    static final int MAX_UNREPORTED = 10_000;
+    private static final long BUCKET_SECONDS = 3600;
+
+    private final IdDictionary memberIds;
+    private final ActiveLoanIndex activeLoans;
+    private final ConcurrentSkipListMap<Long, NavigableSet<Loan>> buckets = new ConcurrentSkipListMap<>();
+    private final EligibilityIndex eligibility;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Buckets before this one may be retired by advance; writers adding to one take the lock
+    private volatile long frontier = Long.MIN_VALUE;
+    private final Deque<Loan> newlyOverdue = new ArrayDeque<>(); // guarded by lock
+    private LocalDateTime lastAdvance = LocalDateTime.MIN;         // guarded by lock
+
+    DueDateIndex(IdDictionary memberIds, ActiveLoanIndex activeLoans, EligibilityIndex eligibility) {
+        this.memberIds = memberIds;
+        this.activeLoans = activeLoans;
+        this.eligibility = eligibility;
+    }
+
+    // Apply the transition previous -> current (previous is null for a new loan; previousMember
+    // is its member's code). Runs after activeLoans has seen the same transition.
+    void update(Loan previous, int previousMember, Loan current) {
+        if (previous != null && previous.isActive() && !remove(previous)) {
+            // previous had already been drained as overdue: the member may be clear now.
+            // Under the lock, so a drain in progress has set the flag before we recompute it.
+            lock.lock();
+            try {
+                eligibility.setOverdue(previousMember, activeLoans.hasOverdue(previousMember, lastAdvance));
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (current.isActive()) {
+            add(current);
+        }
+    }
+
+    // Drain every loan due before now; cheap (no lock) when nothing has expired
+    void advance(LocalDateTime now) {
+        if (!hasExpired(now)) {
+            return;
+        }
+        lock.lock();
+        try {
+            long nowBucket = bucketOf(now);
+            // Publish the new frontier before reading the buckets: a writer that adds to an older
+            // bucket after this either sees the new frontier or had its loan drained below
+            if (nowBucket > frontier) {
+                frontier = nowBucket;
+            }
+            List<Loan> expired = new ArrayList<>();
+            for (Map.Entry<Long, NavigableSet<Loan>> entry = buckets.firstEntry();
+                 entry != null && entry.getKey() <= nowBucket;
+                 entry = buckets.higherEntry(entry.getKey())) {
+                NavigableSet<Loan> bucket = entry.getValue();
+                for (Loan first = first(bucket); first != null && first.dueDate().isBefore(now); first = first(bucket)) {
+                    if (bucket.remove(first)) {
+                        expired.add(first);
+                    }
+                }
+                if (entry.getKey() < frontier && bucket.isEmpty()) {
+                    buckets.remove(entry.getKey(), bucket);
+                }
+            }
+            expired.forEach(this::markOverdue);
+            if (now.isAfter(lastAdvance)) {
+                lastAdvance = now;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Loans that became overdue since the last call, in due-date order
+    List<Loan> drainNewlyOverdue() {
+        lock.lock();
+        try {
+            List<Loan> drained = List.copyOf(newlyOverdue);
+            newlyOverdue.clear();
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Not-yet-overdue loans due in [from, to), in due-date order - only the buckets in range are read
+    List<Loan> dueBetween(LocalDateTime from, LocalDateTime to) {
+        List<Loan> due = new ArrayList<>();
+        for (NavigableSet<Loan> bucket : buckets.subMap(bucketOf(from), true, bucketOf(to), true).values()) {
+            for (Loan loan : bucket) {
+                if (!loan.dueDate().isBefore(from) && loan.dueDate().isBefore(to)) {
+                    due.add(loan);
+                }
+            }
+        }
+        return due;
+    }
+
+    private void add(Loan loan) {
+        long key = bucketOf(loan.dueDate());
+        NavigableSet<Loan> bucket = buckets.computeIfAbsent(key,
+            k -> new ConcurrentSkipListSet<>(ActiveLoanIndex.BY_DUE_DATE));
+        bucket.add(loan);
+        if (key < frontier) {
+            // Due before the last advance's hour: its bucket may be retired already, and advance
+            // has moved on either way, so drain the loan here
+            lock.lock();
+            try {
+                if (bucket.remove(loan)) {
+                    markOverdue(loan);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void markOverdue(Loan loan) {
+        eligibility.setOverdue(memberIds.intern(loan.memberId()), true);
+        newlyOverdue.addLast(loan);
+        if (newlyOverdue.size() > MAX_UNREPORTED) {
+            newlyOverdue.removeFirst();
+        }
+    }
+
+    // Something is due before now, or an emptied past bucket is waiting to be retired
+    private boolean hasExpired(LocalDateTime now) {
+        long nowBucket = bucketOf(now);
+        for (Map.Entry<Long, NavigableSet<Loan>> entry : buckets.headMap(nowBucket, true).entrySet()) {
+            Loan first = first(entry.getValue());
+            if (first != null) {
+                return first.dueDate().isBefore(now);
+            }
+            if (entry.getKey() < nowBucket) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // false if the loan was not in its bucket, i.e. it had been drained already.
+    // Emptied buckets stay until advance retires them, so a concurrent add never lands in a
+    // bucket that is no longer in the map.
+    private boolean remove(Loan loan) {
+        NavigableSet<Loan> bucket = buckets.get(bucketOf(loan.dueDate()));
+        return bucket != null && bucket.remove(loan);
+    }
+
+    // Safe against a concurrent removal emptying the bucket (unlike isEmpty() + first())
+    private static Loan first(NavigableSet<Loan> bucket) {
+        Iterator<Loan> loans = bucket.iterator();
+        return loans.hasNext() ? loans.next() : null;
+    }
+
+    private static long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), BUCKET_SECONDS);
+    }
+}
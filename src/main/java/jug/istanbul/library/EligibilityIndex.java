@@ -0,0 +1,68 @@
+package jug.istanbul.library;
+
+import java.util.function.UnaryOperator;
+
+// Per-member MemberEligibility by member code, updated incrementally by the store.
+// Besides the public record each slot counts in-flight reservations: a borrow reserves a
+// loan slot before taking a copy, so concurrent borrows by one member cannot overshoot
+// the loan limit between the check and the loan being recorded.
+final class EligibilityIndex {
+    private record Slot(MemberEligibility eligibility, int reserved) {
+        static final Slot UNKNOWN = new Slot(MemberEligibility.UNKNOWN, 0);
+    }
+
+    private final DenseArray<Slot> slots = new DenseArray<>();
+
+    MemberEligibility get(int memberCode) {
+        Slot slot = memberCode == IdDictionary.UNKNOWN ? null : slots.get(memberCode);
+        return slot == null ? MemberEligibility.UNKNOWN : slot.eligibility();
+    }
+
+    void setBlocked(int memberCode, boolean blocked) {
+        update(memberCode, e -> new MemberEligibility(e.activeLoans(), e.overdue(), blocked));
+    }
+
+    void setOverdue(int memberCode, boolean overdue) {
+        update(memberCode, e -> new MemberEligibility(e.activeLoans(), overdue, e.blocked()));
+    }
+
+    void addActiveLoans(int memberCode, int delta) {
+        update(memberCode, e -> new MemberEligibility(e.activeLoans() + delta, e.overdue(), e.blocked()));
+    }
+
+    // First sighting of a member the store holds no record for: judge by the given flag
+    void seed(int memberCode, boolean blocked) {
+        slots.computeIfAbsent(memberCode, code -> new Slot(new MemberEligibility(0, false, blocked), 0));
+    }
+
+    // The borrow gate: one atomic read-modify-write of the member's slot
+    boolean tryReserve(int memberCode, LibraryPolicy policy) {
+        if (memberCode == IdDictionary.UNKNOWN) {
+            return false;
+        }
+        boolean[] reserved = new boolean[1];
+        slots.update(memberCode, current -> {
+            Slot slot = current == null ? Slot.UNKNOWN : current;
+            MemberEligibility e = slot.eligibility();
+            MemberEligibility withReservations = new MemberEligibility(
+                e.activeLoans() + slot.reserved(), e.overdue(), e.blocked());
+            if (!withReservations.canBorrow(policy)) {
+                return current;
+            }
+            reserved[0] = true;
+            return new Slot(e, slot.reserved() + 1);
+        });
+        return reserved[0];
+    }
+
+    void release(int memberCode) {
+        slots.update(memberCode, slot -> new Slot(slot.eligibility(), slot.reserved() - 1));
+    }
+
+    private void update(int memberCode, UnaryOperator<MemberEligibility> change) {
+        slots.update(memberCode, current -> {
+            Slot slot = current == null ? Slot.UNKNOWN : current;
+            return new Slot(change.apply(slot.eligibility()), slot.reserved());
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package jug.istanbul.library;
+
+import java.time.LocalDateTime;
+
+// DO: Simple immutable data - a member's place in a book's hold queue.
+// copyId and expiresAt stay null while the member waits; once a copy is set aside the hold
+// is ready, and the member claims it by borrowing the book before expiresAt.
+public record Hold(
+    String memberId,
+    String bookId,
+    LocalDateTime placedAt,
+    String copyId,
+    LocalDateTime expiresAt
+) {
+    public static Hold create(String memberId, String bookId, LocalDateTime placedAt) {
+        return new Hold(memberId, bookId, placedAt, null, null);
+    }
+    
+    // Check if a copy is waiting for the member
+    public boolean isReady() {
+        return copyId != null;
+    }
+    
+    // Check if a ready hold went unclaimed past its pickup window
+    public boolean isExpired(LocalDateTime now) {
+        return isReady() && now.isAfter(expiresAt);
+    }
+    
+    // Set a copy aside for this hold (immutable)
+    public Hold ready(String copyId, LocalDateTime expiresAt) {
+        if (isReady()) {
+            throw new IllegalStateException("Hold is already ready");
+        }
+        return new Hold(memberId, bookId, placedAt, copyId, expiresAt);
+    }
+}
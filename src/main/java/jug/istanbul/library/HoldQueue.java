@@ -0,0 +1,143 @@
+package jug.istanbul.library;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+// Per-book FIFO hold queues plus the holds that already have a copy set aside.
+//   waiting: one deque per book code, in placement order
+//   by member: bookId -> the member's hold on it, so a member's own lookups never scan a queue
+//   ready: ordered by pickup deadline, so expiry only reads the holds that expired
+//   by copy: copyId -> the ready hold it is set aside for, so a claim can prove ownership
+// Changes to one book's holds must hold that book's stripe in LibraryStore; member lookups
+// and the expiry check read concurrent structures without it.
+final class HoldQueue {
+    private static final Comparator<Hold> BY_EXPIRY =
+        Comparator.comparing(Hold::expiresAt).thenComparing(Hold::memberId).thenComparing(Hold::bookId);
+
+    private final IdDictionary memberIds;
+    private final DenseArray<Deque<Hold>> waitingByBook = new DenseArray<>();
+    private final DenseArray<Map<String, Hold>> holdsByMember = new DenseArray<>();
+    private final ConcurrentSkipListSet<Hold> readyByExpiry = new ConcurrentSkipListSet<>(BY_EXPIRY);
+    private final Map<String, Hold> readyByCopy = new ConcurrentHashMap<>();
+    private final Queue<Hold> newlyReady = new ConcurrentLinkedQueue<>();
+
+    HoldQueue(IdDictionary memberIds) {
+        this.memberIds = memberIds;
+    }
+
+    Optional<Hold> find(String memberId, String bookId) {
+        Map<String, Hold> holds = holdsOf(memberId);
+        return holds == null ? Optional.empty() : Optional.ofNullable(holds.get(bookId));
+    }
+
+    List<Hold> holds(String memberId) {
+        Map<String, Hold> holds = holdsOf(memberId);
+        return holds == null ? List.of() : List.copyOf(holds.values());
+    }
+
+    // memberCode and bookCode are the interned ids of the hold. Caller holds the book's stripe.
+    void enqueue(Hold hold, int memberCode, int bookCode) {
+        waitingByBook.computeIfAbsent(bookCode, code -> new ArrayDeque<>()).addLast(hold);
+        holdsByMember.computeIfAbsent(memberCode, code -> new ConcurrentHashMap<>()).put(hold.bookId(), hold);
+    }
+
+    // Caller holds the book's stripe
+    boolean hasWaiting(int bookCode) {
+        Deque<Hold> waiting = waitingFor(bookCode);
+        return waiting != null && !waiting.isEmpty();
+    }
+
+    // Take the earliest waiting hold whose member may borrow; members who may not keep their place.
+    // Caller holds the book's stripe.
+    Optional<Hold> pollEligible(int bookCode, Predicate<String> mayBorrow) {
+        Deque<Hold> waiting = waitingFor(bookCode);
+        if (waiting == null) {
+            return Optional.empty();
+        }
+        for (Iterator<Hold> holds = waiting.iterator(); holds.hasNext(); ) {
+            Hold hold = holds.next();
+            if (mayBorrow.test(hold.memberId())) {
+                holds.remove();
+                return Optional.of(hold);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // waiting was just polled and now has a copy set aside. Caller holds the book's stripe.
+    void markReady(Hold waiting, Hold ready) {
+        holdsByMember.get(memberIds.code(ready.memberId())).replace(ready.bookId(), waiting, ready);
+        readyByExpiry.add(ready);
+        readyByCopy.put(ready.copyId(), ready);
+        newlyReady.add(ready);
+    }
+
+    // Whether ready is the hold its copy is currently set aside for. Caller holds the book's stripe.
+    boolean owns(Hold ready) {
+        return ready.equals(readyByCopy.get(ready.copyId()));
+    }
+
+    // Remove a ready hold once it is claimed or expired; false if it was gone already.
+    // Caller holds the book's stripe.
+    boolean remove(Hold ready) {
+        Map<String, Hold> holds = holdsOf(ready.memberId());
+        if (holds == null || !holds.remove(ready.bookId(), ready)) {
+            return false;
+        }
+        readyByExpiry.remove(ready);
+        readyByCopy.remove(ready.copyId(), ready);
+        return true;
+    }
+
+    // Drop the member's hold on the book if it is still waiting, e.g. once they borrowed the
+    // book directly. Caller holds the book's stripe.
+    void removeWaiting(String memberId, String bookId, int bookCode) {
+        Map<String, Hold> holds = holdsOf(memberId);
+        Hold hold = holds == null ? null : holds.get(bookId);
+        if (hold != null && !hold.isReady() && holds.remove(bookId, hold)) {
+            waitingFor(bookCode).remove(hold);
+        }
+    }
+
+    // Ready holds past their deadline, earliest first; cheap when nothing has expired
+    List<Hold> expired(LocalDateTime now) {
+        List<Hold> expired = new ArrayList<>();
+        for (Hold hold : readyByExpiry) {
+            if (!hold.isExpired(now)) {
+                break;
+            }
+            expired.add(hold);
+        }
+        return expired;
+    }
+
+    // Holds that became ready since the last call, for the pickup notification job
+    List<Hold> drainNewlyReady() {
+        List<Hold> drained = new ArrayList<>();
+        for (Hold hold = newlyReady.poll(); hold != null; hold = newlyReady.poll()) {
+            drained.add(hold);
+        }
+        return drained;
+    }
+
+    private Deque<Hold> waitingFor(int bookCode) {
+        return bookCode == IdDictionary.UNKNOWN ? null : waitingByBook.get(bookCode);
+    }
+
+    private Map<String, Hold> holdsOf(String memberId) {
+        int code = memberIds.code(memberId);
+        return code == IdDictionary.UNKNOWN ? null : holdsByMember.get(code);
+    }
+}
@@ -0,0 +1,52 @@
+package jug.istanbul.library;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Interns external string ids (userId, bookId, copyId, loanId) to dense int codes 0, 1, 2...
+// Strings are hashed once at the boundary; indexes behind it key arrays by code instead.
+// Codes are never reused, so a code stays valid for the life of the store.
+final class IdDictionary {
+    static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> codes;
+    private final DenseArray<String> ids = new DenseArray<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    IdDictionary() {
+        this(16);
+    }
+
+    // Room for expectedIds before the first resize
+    IdDictionary(int expectedIds) {
+        codes = new ConcurrentHashMap<>(expectedIds);
+    }
+
+    int intern(String id) {
+        Integer code = codes.get(id);
+        if (code != null) {
+            return code;
+        }
+        return codes.computeIfAbsent(id, key -> {
+            int assigned = next.getAndIncrement();
+            ids.set(assigned, key);
+            return assigned;
+        });
+    }
+
+    // Code of an already interned id, or UNKNOWN (never assigns one)
+    int code(String id) {
+        Integer code = codes.get(id);
+        return code == null ? UNKNOWN : code;
+    }
+
+    String id(int code) {
+        return ids.get(code);
+    }
+
+    // Upper bound (exclusive) of the codes handed out so far
+    int size() {
+        return next.get();
+    }
+}
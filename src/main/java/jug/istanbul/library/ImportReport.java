@@ -0,0 +1,16 @@
+package jug.istanbul.library;
+
+import java.util.List;
+
+// DO: Simple immutable data - outcome of a bulk import. Bad rows are counted and reported
+// (the first MAX_REPORTED_ERRORS of them, in file order) instead of aborting the import.
+public record ImportReport(long imported, long rejected, List<RowError> errors) {
+    public static final int MAX_REPORTED_ERRORS = 1_000;
+
+    // line is 1-based and counts the header line
+    public record RowError(long line, String message) {}
+
+    public boolean isClean() {
+        return rejected == 0;
+    }
+}
@@ -0,0 +1,88 @@
+package jug.istanbul.library;
+
+import java.util.Arrays;
+
+// Growable primitive int list - avoids boxing in index posting lists
+final class IntList {
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        this.values = new int[Math.max(1, capacity)];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    // Keeps the list sorted and free of duplicates
+    void addSorted(int value) {
+        if (size == 0 || values[size - 1] < value) {
+            add(value);
+            return;
+        }
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0) {
+            return;
+        }
+        int insertAt = -pos - 1;
+        add(0);
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt - 1);
+        values[insertAt] = value;
+    }
+
+    // Removes value from a sorted list, if present
+    void removeSorted(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0) {
+            System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    // Position of the first element >= value at or after from, for sorted lists.
+    // Gallops forward so skipping over long posting lists costs O(log distance).
+    int seek(int from, int value) {
+        int lo = from;
+        int bound = 1;
+        while (lo < size && values[lo] < value) {
+            from = lo;
+            lo = from + bound;
+            bound <<= 1;
+        }
+        int hi = Math.min(lo, size);
+        int pos = Arrays.binarySearch(values, from, hi, value);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    int removeLast() {
+        return values[--size];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
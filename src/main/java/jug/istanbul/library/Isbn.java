@@ -0,0 +1,81 @@
+package jug.istanbul.library;
+
+import java.util.Optional;
+
+// DO: Separate behavior - ISBN normalization
+// Scanners send ISBN-10 or ISBN-13, with or without hyphens/spaces. Both normalize to the
+// 13-digit ISBN-13, kept as a primitive long key (13 digits fit easily in 64 bits).
+public class Isbn {
+    private Isbn() {} // Utility class
+
+    // Marks input that is not a valid ISBN
+    public static final long INVALID = -1;
+
+    // The ISBN-13 number of an ISBN-10 or ISBN-13, or INVALID on bad format or checksum.
+    // Parses in place: no strings are built.
+    public static long key(CharSequence isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+        long digits = 0;
+        long first9 = 0;
+        int count = 0;
+        int sum10 = 0;  // ISBN-10 checksum: weights 10..1
+        int sum13 = 0;  // ISBN-13 checksum: weights 1,3,1,3...
+        boolean x = false;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            int d;
+            if (c >= '0' && c <= '9' && !x) {
+                d = c - '0';
+            } else if ((c == 'X' || c == 'x') && count == 9) {
+                d = 10; // ISBN-10 check digit only
+                x = true;
+            } else {
+                return INVALID;
+            }
+            if (++count > 13) {
+                return INVALID;
+            }
+            digits = digits * 10 + d;
+            if (count <= 9) {
+                first9 = digits;
+            }
+            sum10 += (11 - count) * d;
+            sum13 += (count % 2 == 1 ? 1 : 3) * d;
+        }
+        if (count == 13) {
+            long prefix = digits / 10_000_000_000L;
+            return sum13 % 10 == 0 && (prefix == 978 || prefix == 979) ? digits : INVALID;
+        }
+        if (count == 10 && sum10 % 11 == 0) {
+            return fromIsbn10(first9);
+        }
+        return INVALID;
+    }
+
+    public static boolean isValid(CharSequence isbn) {
+        return key(isbn) != INVALID;
+    }
+
+    // Canonical 13-digit form without separators
+    public static Optional<String> toIsbn13(CharSequence isbn) {
+        long key = key(isbn);
+        return key == INVALID ? Optional.empty() : Optional.of(Long.toString(key));
+    }
+
+    // 978 + the first nine ISBN-10 digits, followed by a freshly computed ISBN-13 check digit
+    private static long fromIsbn10(long first9) {
+        long withoutCheck = 978_000_000_000L + first9;
+        int sum = 0;
+        long rest = withoutCheck;
+        for (int position = 12; position >= 1; position--) {
+            sum += (position % 2 == 1 ? 1 : 3) * (int) (rest % 10);
+            rest /= 10;
+        }
+        return withoutCheck * 10 + (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,119 @@
+package jug.istanbul.library;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// ISBN-13 key -> bookId, open addressing with linear probing over a primitive long[].
+// A lookup is one Isbn.key parse plus a probe: no boxing, no per-lookup strings.
+// Books without a valid ISBN are simply not indexed.
+final class IsbnIndex {
+    private static final long EMPTY = Isbn.INVALID;
+
+    private long[] keys = newKeys(16);
+    private String[] bookIds = new String[16];
+    private int size;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Apply the replacement previous -> current (previous is null for a new book)
+    void update(Book previous, Book current) {
+        long oldKey = previous == null ? EMPTY : Isbn.key(previous.isbn());
+        long newKey = Isbn.key(current.isbn());
+        lock.writeLock().lock();
+        try {
+            if (oldKey != EMPTY && oldKey != newKey) {
+                remove(oldKey, previous.bookId());
+            }
+            if (newKey != EMPTY) {
+                put(newKey, current.bookId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // bookId under this ISBN in any supported format, or null
+    String find(CharSequence isbn) {
+        long key = Isbn.key(isbn);
+        if (key == EMPTY) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(key, keys);
+            return keys[slot] == key ? bookIds[slot] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A later book with the same ISBN takes the key over
+    private void put(long key, String bookId) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = slotOf(key, keys);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        bookIds[slot] = bookId;
+    }
+
+    // Only if the key still points at this book; backward-shift deletion keeps probe chains intact
+    private void remove(long key, String bookId) {
+        int slot = slotOf(key, keys);
+        if (keys[slot] != key || !bookIds[slot].equals(bookId)) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = home(keys[i], mask);
+            // Move i into the hole unless its home lies cyclically in (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                bookIds[hole] = bookIds[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        bookIds[hole] = null;
+        size--;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        String[] oldBookIds = bookIds;
+        keys = newKeys(oldKeys.length * 2);
+        bookIds = new String[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                bookIds[slot] = oldBookIds[i];
+            }
+        }
+    }
+
+    // Slot holding key, or the empty slot where it would go
+    private static int slotOf(long key, long[] keys) {
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int home(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential ISBNs
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+}
@@ -107,12 +107,7 @@ public class LibraryDemo {
         
         // Use case 7: Multiple copies of same book
         System.out.println("\n7. Multiple Copies Available");
-        int availableCopies = BookSearchOperations.countAvailableCopies(
-            library.getBooks().stream()
-                .flatMap(b -> bookCopies.stream())
-                .toList(),
-            "B001"
-        );
+        int availableCopies = library.countAvailableCopies("B001");
         System.out.println("'Clean Code' has " + (availableCopies + 1) + " copies (1 borrowed, " + availableCopies + " available)");
         
         System.out.println("\n✅ Data-Oriented Design Benefits:");
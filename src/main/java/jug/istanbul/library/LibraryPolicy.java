@@ -0,0 +1,29 @@
+package jug.istanbul.library;
+
+import java.time.Duration;
+
+// DO: Simple immutable data - lending rules
+public record LibraryPolicy(int maxActiveLoans, Duration loanPeriod, Duration holdPickupPeriod) {
+    // No loan limit, two-week loans, three days to pick up a held copy
+    public static final LibraryPolicy DEFAULT = new LibraryPolicy(Integer.MAX_VALUE, Duration.ofDays(14), Duration.ofDays(3));
+
+    public LibraryPolicy {
+        if (maxActiveLoans <= 0) {
+            throw new IllegalArgumentException("Max active loans must be positive");
+        }
+        if (loanPeriod == null || loanPeriod.isNegative() || loanPeriod.isZero()) {
+            throw new IllegalArgumentException("Loan period must be positive");
+        }
+        if (holdPickupPeriod == null || holdPickupPeriod.isNegative() || holdPickupPeriod.isZero()) {
+            throw new IllegalArgumentException("Hold pickup period must be positive");
+        }
+    }
+
+    public LibraryPolicy withMaxActiveLoans(int maxActiveLoans) {
+        return new LibraryPolicy(maxActiveLoans, loanPeriod, holdPickupPeriod);
+    }
+
+    public LibraryPolicy withHoldPickupPeriod(Duration holdPickupPeriod) {
+        return new LibraryPolicy(maxActiveLoans, loanPeriod, holdPickupPeriod);
+    }
+}
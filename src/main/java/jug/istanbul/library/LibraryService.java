@@ -1,18 +1,26 @@
 package jug.istanbul.library;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 // DO: Library service using functional composition
 public class LibraryService {
-    private final List<User> users;
-    private final List<UserCredentials> credentials;
-    private final List<Book> books;
-    private final List<BookCopy> bookCopies;
-    private final List<Loan> loans;
+    private final LibraryStore store;
+    private final BookSearchBackend search;
+    private final LibraryPolicy policy;
+    private final SessionStore sessions = new SessionStore(Duration.ofMinutes(30));
+    private final CompletionTrie completions = new CompletionTrie();
     
     public LibraryService(
         List<User> users,
@@ -21,63 +29,280 @@ public class LibraryService {
         List<BookCopy> bookCopies,
         List<Loan> loans
     ) {
-        this.users = new ArrayList<>(users);
-        this.credentials = new ArrayList<>(credentials);
-        this.books = new ArrayList<>(books);
-        this.bookCopies = new ArrayList<>(bookCopies);
-        this.loans = new ArrayList<>(loans);
+        this(users, credentials, books, bookCopies, loans, new ScanBookSearch());
+    }
+    
+    // Same service, searching through the given backend (e.g. a TrigramBookSearch, or one
+    // wrapped in a CachingBookSearch - its cached results are immutable lists shared between
+    // callers, where the other backends return a fresh list per search)
+    public LibraryService(
+        List<User> users,
+        List<UserCredentials> credentials,
+        List<Book> books,
+        List<BookCopy> bookCopies,
+        List<Loan> loans,
+        BookSearchBackend search
+    ) {
+        this(users, credentials, books, bookCopies, loans, search, LibraryPolicy.DEFAULT);
+    }
+    
+    // Same service under explicit lending rules (loan limit, loan period, hold pickup period)
+    public LibraryService(
+        List<User> users,
+        List<UserCredentials> credentials,
+        List<Book> books,
+        List<BookCopy> bookCopies,
+        List<Loan> loans,
+        BookSearchBackend search,
+        LibraryPolicy policy
+    ) {
+        this.store = new LibraryStore(users, credentials, books, bookCopies, loans, policy);
+        this.search = search;
+        this.policy = policy;
+        // Bulk-index the catalog (one lock, one pass per index) rather than book by book
+        List<Book> catalog = store.books();
+        search.addAll(catalog);
+        completions.addAll(catalog.stream()
+            .flatMap(book -> Stream.of(book.title(), book.author()))
+            .toList());
+    }
+    
+    // Restart from a binary snapshot file (see LibrarySnapshotFile) instead of the source lists.
+    // Loading is bulk: the store publishes one version for all records and the search indexes
+    // are built in one pass each (LibraryRestoreBenchmark times it against the file read).
+    public static LibraryService restore(Path file, BookSearchBackend search, LibraryPolicy policy) throws IOException {
+        LibrarySnapshotFile.Contents contents = LibrarySnapshotFile.read(file);
+        return new LibraryService(contents.users(), contents.credentials(), contents.books(),
+            contents.bookCopies(), contents.loans(), search, policy);
+    }
+    
+    // Write the current version and the credentials to a snapshot file for restore
+    public void saveSnapshot(Path file) throws IOException {
+        LibrarySnapshotFile.write(file, store.snapshot(), store.credentials());
     }
     
     // Authentication
     public Optional<User> login(String email, String password) {
-        return UserOperations.authenticate(users, credentials, email, password);
+        return UserOperations.authenticate(store::findCredentials, store::findUserByEmail, email, password);
+    }
+    
+    // Sessions: authenticate once, then resolve the token on each request
+    public Optional<String> openSession(String email, String password) {
+        return login(email, password).map(user -> sessions.open(user.userId()));
+    }
+    
+    // Current User record behind a live token (reflects blocks/unblocks immediately)
+    public Optional<User> resolveSession(String token) {
+        return sessions.resolve(token).flatMap(store::findUser);
+    }
+    
+    public void closeSession(String token) {
+        sessions.close(token);
     }
     
     // Search operations (available to all users)
     public List<Book> searchBooksByTitle(String title) {
-        return BookSearchOperations.searchByTitle(books, title);
+        return search.searchByTitle(title);
     }
     
     public List<Book> searchBooksByAuthor(String author) {
-        return BookSearchOperations.searchByAuthor(books, author);
+        return search.searchByAuthor(author);
+    }
+    
+    // Paged search: memory per query is bounded by limit, whatever the catalog size
+    public SearchPage searchBooksByTitle(String title, String cursor, int limit) {
+        return search.searchByTitle(title, cursor, limit);
+    }
+    
+    public SearchPage searchBooksByAuthor(String author, String cursor, int limit) {
+        return search.searchByAuthor(author, cursor, limit);
+    }
+    
+    // Relevance-ranked, typo-tolerant search: the best `limit` books by title or author
+    public List<ScoredBook> searchBooksRanked(String query, int limit) {
+        return search.searchRanked(query, limit);
+    }
+    
+    // Result cache counters, if searches go through a CachingBookSearch
+    public Optional<SearchCacheStats> getSearchCacheStats() {
+        return search instanceof CachingBookSearch cache ? Optional.of(cache.stats()) : Optional.empty();
+    }
+    
+    // Autocomplete: titles and authors starting with prefix, most books first
+    public List<String> autocomplete(String prefix, int limit) {
+        return completions.complete(prefix, limit);
+    }
+    
+    // Barcode lookup: ISBN-10 or ISBN-13, hyphens optional
+    public Optional<Book> findBookByIsbn(String isbn) {
+        return store.findBookByIsbn(isbn);
+    }
+    
+    public List<BookCopy> findAvailableCopies(String bookId) {
+        return store.availableCopies(bookId);
+    }
+    
+    public int countAvailableCopies(String bookId) {
+        return store.availableCopyCount(bookId);
     }
     
     // Member operations
     public Optional<Loan> borrowBook(User member, String bookId) {
-        // Check if user can borrow
-        if (!UserOperations.canBorrow(member)) {
+        // One lookup of the member's stored eligibility (blocked, overdue, loan limit),
+        // which also reserves the loan slot so concurrent borrows cannot pass the limit
+        LocalDateTime now = LocalDateTime.now();
+        store.expireHolds(now); // a copy held past its pickup deadline is free for anyone again
+        if (!store.reserveLoan(member, now)) {
             return Optional.empty();
         }
         
-        // Check for overdue books
-        if (LoanOperations.hasOverdueBooks(loans, member.userId())) {
-            return Optional.empty();
+        // A copy set aside for the member's hold comes first; otherwise atomically lend the
+        // first available copy (safe under concurrent borrows)
+        try {
+            Function<BookCopy, Loan> loanFor = copy -> newLoan(member, copy, now);
+            return store.claimHold(member.userId(), bookId, now, loanFor)
+                .or(() -> store.lendAvailableCopy(bookId, loanFor));
+        } finally {
+            store.releaseLoanReservation(member.userId());
         }
-        
-        // Find available copy
-        List<BookCopy> availableCopies = BookSearchOperations.findAvailableCopies(bookCopies, bookId);
-        if (availableCopies.isEmpty()) {
-            return Optional.empty();
+    }
+    
+    // Instead of retrying borrowBook: queue for the book (FIFO). A returned copy is set aside
+    // for the next eligible holder, who claims it with borrowBook before hold.expiresAt().
+    // Empty if the member may not borrow right now.
+    public Optional<Hold> placeHold(User member, String bookId) {
+        if (store.findBook(bookId).isEmpty()) {
+            throw new IllegalArgumentException("Book not found");
         }
-        
-        // Borrow first available copy
-        BookCopy copy = availableCopies.get(0);
-        BookCopy borrowedCopy = copy.borrow();
-        
-        // Update copy in list
-        bookCopies.replaceAll(c -> c.copyId().equals(copy.copyId()) ? borrowedCopy : c);
-        
-        // Create loan
-        Loan loan = Loan.create(
+        return store.placeHold(member, bookId, LocalDateTime.now());
+    }
+    
+    // The member's holds, waiting or ready for pickup - a cheap lookup, not a queue scan
+    public List<Hold> getHolds(String memberId) {
+        return store.holds(memberId);
+    }
+    
+    // Pickup notification job: holds that got a copy set aside since the previous call
+    public List<Hold> drainReadyHolds() {
+        return store.drainReadyHolds();
+    }
+    
+    // Housekeeping job: release copies whose holds went unclaimed; returns the expired holds.
+    // Borrows, returns and new holds also expire overdue holds on the way.
+    public List<Hold> expireHolds() {
+        return store.expireHolds(LocalDateTime.now());
+    }
+    
+    // Current borrow eligibility of a member (unknown ids come back blocked)
+    public MemberEligibility getEligibility(String memberId) {
+        return store.eligibility(memberId, LocalDateTime.now());
+    }
+    
+    // Kiosk batch: same outcome as calling borrowBook for each bookId in order
+    public List<BorrowResult> borrowBooks(User member, List<String> bookIds) {
+        return borrowBooks(bookIds.stream()
+            .map(bookId -> new BorrowRequest(member, bookId))
+            .toList());
+    }
+    
+    // Multi-member batch: same outcome as calling borrowBook for each request in order.
+    // Consecutive requests for the same book share one pass over its lock stripe, and results
+    // keep the order of the requests.
+    public List<BorrowResult> borrowBooks(List<BorrowRequest> requests) {
+        LocalDateTime now = LocalDateTime.now();
+        store.expireHolds(now);
+        BorrowResult[] results = new BorrowResult[requests.size()];
+        for (int start = 0, end; start < requests.size(); start = end) {
+            String bookId = requests.get(start).bookId();
+            end = start + 1;
+            while (end < requests.size() && requests.get(end).bookId().equals(bookId)) {
+                end++;
+            }
+            borrowRun(requests.subList(start, end), bookId, now, results, start);
+        }
+        return List.of(results);
+    }
+    
+    // A run of requests for one book. Each reserves its loan slot in order and claims the
+    // member's ready hold if there is one; the rest are lent together, then every slot is
+    // released before the next run. Within the run this matches sequential borrows: a request
+    // that found no copy leaves none for the later ones either, so the slot it held blocked nobody.
+    private void borrowRun(List<BorrowRequest> run, String bookId, LocalDateTime now,
+                           BorrowResult[] results, int offset) {
+        List<Integer> reserved = new ArrayList<>();
+        List<Integer> lending = new ArrayList<>();
+        try {
+            for (int i = 0; i < run.size(); i++) {
+                User member = run.get(i).member();
+                if (!store.reserveLoan(member, now)) {
+                    results[offset + i] = BorrowResult.refused(member.userId(), bookId);
+                    continue;
+                }
+                reserved.add(i);
+                Optional<Loan> claimed = store.claimHold(member.userId(), bookId, now, copy -> newLoan(member, copy, now));
+                if (claimed.isPresent()) {
+                    results[offset + i] = BorrowResult.borrowed(claimed.get(), bookId);
+                } else {
+                    lending.add(i);
+                }
+            }
+            
+            List<Loan> lent = lending.isEmpty() ? List.of() : store.lendAvailableCopies(bookId, lending.stream()
+                .map(i -> (Function<BookCopy, Loan>) copy -> newLoan(run.get(i).member(), copy, now))
+                .toList());
+            for (int p = 0; p < lending.size(); p++) {
+                int i = lending.get(p);
+                results[offset + i] = p < lent.size()
+                    ? BorrowResult.borrowed(lent.get(p), bookId)
+                    : BorrowResult.refused(run.get(i).member().userId(), bookId);
+            }
+        } finally {
+            reserved.forEach(i -> store.releaseLoanReservation(run.get(i).member().userId()));
+        }
+    }
+    
+    private void addCompletions(Book book) {
+        completions.add(book.title());
+        completions.add(book.author());
+    }
+    
+    private void removeCompletions(Book book) {
+        completions.remove(book.title());
+        completions.remove(book.author());
+    }
+    
+    private Loan newLoan(User member, BookCopy copy, LocalDateTime now) {
+        return Loan.create(
             UUID.randomUUID().toString(),
             member.userId(),
             copy.copyId(),
-            LocalDateTime.now(),
-            LocalDateTime.now().plusDays(14)
+            now,
+            now.plus(policy.loanPeriod())
         );
-        loans.add(loan);
-        
-        return Optional.of(loan);
+    }
+    
+    // Returns desk: close the copy's active loan and make the copy available again
+    public Optional<Loan> returnBook(String copyId) {
+        return store.returnCopy(copyId, LocalDateTime.now());
+    }
+    
+    // Self-service return: empty unless the copy is on loan to this member
+    public Optional<Loan> returnBook(User member, String copyId) {
+        return store.returnCopy(copyId, LocalDateTime.now(), member.userId());
+    }
+    
+    public Optional<Loan> findActiveLoan(String copyId) {
+        return store.activeLoanForCopy(copyId);
+    }
+    
+    // Batch return for scanned crates; copies not on loan are skipped
+    public List<Loan> returnBooks(Collection<String> copyIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Loan> closed = new ArrayList<>(copyIds.size());
+        for (String copyId : copyIds) {
+            store.returnCopy(copyId, now).ifPresent(closed::add);
+        }
+        return closed;
     }
     
     // Librarian operations
@@ -86,15 +311,8 @@ public class LibraryService {
             throw new IllegalArgumentException("Only librarians can block members");
         }
         
-        User member = users.stream()
-            .filter(u -> u.userId().equals(memberId))
-            .findFirst()
+        return store.updateUser(memberId, User::block)
             .orElseThrow(() -> new IllegalArgumentException("Member not found"));
-        
-        User blockedMember = member.block();
-        users.replaceAll(u -> u.userId().equals(memberId) ? blockedMember : u);
-        
-        return blockedMember;
     }
     
     public User unblockMember(User librarian, String memberId) {
@@ -102,15 +320,125 @@ public class LibraryService {
             throw new IllegalArgumentException("Only librarians can unblock members");
         }
         
-        User member = users.stream()
-            .filter(u -> u.userId().equals(memberId))
-            .findFirst()
+        return store.updateUser(memberId, User::unblock)
             .orElseThrow(() -> new IllegalArgumentException("Member not found"));
+    }
+    
+    // Registers a user or re-registers one (same userId) with new details and password.
+    // An email belongs to one user; registering another user under it is rejected.
+    public User registerUser(User librarian, User user, UserCredentials credentials) {
+        if (!UserOperations.isLibrarian(librarian)) {
+            throw new IllegalArgumentException("Only librarians can register users");
+        }
+        if (!user.email().equals(credentials.email())) {
+            throw new IllegalArgumentException("Credentials must belong to the user's email");
+        }
         
-        User unblockedMember = member.unblock();
-        users.replaceAll(u -> u.userId().equals(memberId) ? unblockedMember : u);
+        store.putUser(user);
+        store.putCredentials(credentials);
         
-        return unblockedMember;
+        return user;
+    }
+    
+    public Book addBook(User librarian, Book book) {
+        if (!UserOperations.isLibrarian(librarian)) {
+            throw new IllegalArgumentException("Only librarians can add books");
+        }
+        
+        putBook(book);
+        
+        return book;
+    }
+    
+    // Bulk onboarding: stream a CSV with header bookId,title,author,isbn (isbn may be empty)
+    // into the catalog and every index, chunk by chunk. Rows failing Book validation are
+    // reported and skipped; a later row for the same bookId replaces the earlier one.
+    public ImportReport importBooks(User librarian, Path csv) throws IOException {
+        if (!UserOperations.isLibrarian(librarian)) {
+            throw new IllegalArgumentException("Only librarians can import books");
+        }
+        
+        return CsvImport.run(csv, fields -> {
+            requireFields(fields, 4);
+            if (fields.get(0).isBlank()) {
+                throw new IllegalArgumentException("Book id cannot be empty");
+            }
+            return new Book(fields.get(0), fields.get(1), fields.get(2), fields.get(3).isEmpty() ? null : fields.get(3));
+        }, this::putBook);
+    }
+    
+    // Bulk onboarding of copies: CSV with header copyId,bookId; copies start AVAILABLE.
+    // Import the books first - copies of unknown books are reported and skipped, and so are
+    // copyIds that already exist, whatever their status (re-importing never resets a loan or hold).
+    public ImportReport importCopies(User librarian, Path csv) throws IOException {
+        if (!UserOperations.isLibrarian(librarian)) {
+            throw new IllegalArgumentException("Only librarians can import book copies");
+        }
+        
+        return CsvImport.run(csv, fields -> {
+            requireFields(fields, 2);
+            if (fields.get(0).isBlank()) {
+                throw new IllegalArgumentException("Copy id cannot be empty");
+            }
+            return BookCopy.create(fields.get(0), fields.get(1));
+        }, copy -> {
+            if (store.findBook(copy.bookId()).isEmpty()) {
+                throw new IllegalArgumentException("Book not found: " + copy.bookId());
+            }
+            if (!store.putCopy(copy)) {
+                throw new IllegalArgumentException("Book copy already exists: " + copy.copyId());
+            }
+        });
+    }
+    
+    // Store, search index and completions change as one unit per bookId
+    private void putBook(Book book) {
+        store.putBook(book, replaced -> {
+            replaced.ifPresent(this::removeCompletions);
+            search.add(book);
+            addCompletions(book);
+        });
+    }
+    
+    private static void requireFields(List<String> fields, int count) {
+        if (fields.size() != count) {
+            throw new IllegalArgumentException("Expected " + count + " fields, found " + fields.size());
+        }
+    }
+    
+    public List<Loan> getActiveLoans(String memberId) {
+        return store.activeLoans(memberId);
+    }
+    
+    public List<Loan> getOverdueLoans(String memberId) {
+        return store.overdueLoans(memberId, LocalDateTime.now());
+    }
+    
+    // Notification job: loans that became overdue since the previous call, in due-date order.
+    // Each overdue loan is reported once, however often this runs.
+    public List<Loan> drainOverdueLoans() {
+        return store.drainOverdueLoans(LocalDateTime.now());
+    }
+    
+    // Reminder batch, e.g. "everything due tomorrow": active loans due in [from, to), earliest first
+    public List<Loan> getLoansDueBetween(LocalDateTime from, LocalDateTime to) {
+        return store.loansDueBetween(from, to);
+    }
+    
+    public BookCopy addBookCopy(User librarian, BookCopy copy) {
+        if (!UserOperations.isLibrarian(librarian)) {
+            throw new IllegalArgumentException("Only librarians can add book copies");
+        }
+        if (store.findBook(copy.bookId()).isEmpty()) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        
+        // A copy's status is owned by lending, holds and returns - never reset it from here
+        if (!store.putCopy(copy)) {
+            throw new IllegalArgumentException("Book copy already exists");
+        }
+        
+        return copy;
     }
     
     public List<LoanOperations.BookLoanInfo> listBorrowedBooks(User librarian, String memberId) {
@@ -118,15 +446,35 @@ public class LibraryService {
             throw new IllegalArgumentException("Only librarians can list borrowed books");
         }
         
-        return LoanOperations.getBorrowedBooks(loans, bookCopies, books, memberId);
+        return store.borrowedBooks(memberId);
+    }
+    
+    // Dashboard variant: borrowed books for many members, keyed by memberId in request order
+    public Map<String, List<LoanOperations.BookLoanInfo>> listBorrowedBooks(User librarian, Collection<String> memberIds) {
+        if (!UserOperations.isLibrarian(librarian)) {
+            throw new IllegalArgumentException("Only librarians can list borrowed books");
+        }
+        
+        Map<String, List<LoanOperations.BookLoanInfo>> result = new LinkedHashMap<>();
+        for (String memberId : memberIds) {
+            result.put(memberId, store.borrowedBooks(memberId));
+        }
+        return result;
     }
     
     // Getters for immutable views
+    // Consistent point-in-time view of users, books, copies and loans for reporting.
+    // Pinning it is O(1); borrow/return keep running and never wait for readers.
+    public LibrarySnapshot snapshot() {
+        return store.snapshot();
+    }
+    
+    // Persistent snapshots: O(1) per call, unaffected by later writes
     public List<User> getUsers() {
-        return List.copyOf(users);
+        return store.users();
     }
     
     public List<Book> getBooks() {
-        return List.copyOf(books);
+        return store.books();
     }
 }
@@ -0,0 +1,16 @@
+package jug.istanbul.library;
+
+import java.util.List;
+
+// DO: Simple immutable data - one consistent, point-in-time version of the whole library.
+// Pin it for the life of a reporting query: later writes publish new versions and never
+// change this one. The lists are immutable and in insertion order (PersistentVectors, and
+// columnar CopyColumns for the copies), so pinning is free and they can be passed straight
+// to the pure *Operations functions.
+public record LibrarySnapshot(
+    long version,
+    List<User> users,
+    List<Book> books,
+    List<BookCopy> bookCopies,
+    List<Loan> loans
+) {}
@@ -0,0 +1,388 @@
+package jug.istanbul.library;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+// Compact binary snapshot of the whole library, for restarts without the source lists.
+//
+//   header    magic, format version, snapshot version, CRC32C of those 16 bytes
+//   sections  strings, users, credentials, books, copies, loans;
+//             each one is [int length][body][int CRC32C of body]
+//
+// Every distinct string (ids, names, emails, titles, ...) is stored once in the strings
+// section. The table sections are fixed-width columns, one after another: string codes
+// (-1 for null), enum ordinals, and epoch-second + nano pairs for times (nano -1 for null).
+// A load maps the file read-only, verifies every checksum, decodes each distinct string once
+// and bulk-reads the columns into primitive arrays - no parsing, no per-field allocation.
+//
+// Enums are stored by ordinal: appending constants keeps old files readable, reordering or
+// removing them needs a FORMAT_VERSION bump. Holds are not part of a snapshot, so a copy
+// set aside for a hold is written as AVAILABLE.
+public final class LibrarySnapshotFile {
+    static final int MAGIC = 0x5342494C; // "LIBS" in little-endian byte order
+    static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int NULL = -1;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private LibrarySnapshotFile() {} // Utility class
+
+    // DO: Simple immutable data - everything a snapshot file restores
+    public record Contents(
+        long version,
+        List<User> users,
+        List<UserCredentials> credentials,
+        List<Book> books,
+        List<BookCopy> bookCopies,
+        List<Loan> loans
+    ) {}
+
+    // Written to a temporary file next to file and moved into place, so a crash mid-write
+    // never leaves a truncated snapshot under the real name
+    public static void write(Path file, LibrarySnapshot snapshot, Collection<UserCredentials> credentials) throws IOException {
+        StringCodes strings = new StringCodes();
+        // Table sections first: encoding them fills the string dictionary
+        List<ByteBuffer> tables = List.of(
+            users(snapshot.users(), strings),
+            credentials(List.copyOf(credentials), strings),
+            books(snapshot.books(), strings),
+            copies(snapshot.bookCopies(), strings),
+            loans(snapshot.loans(), strings));
+
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(snapshot.version()));
+            writeSection(channel, strings.section());
+            for (ByteBuffer table : tables) {
+                writeSection(channel, table);
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file too large: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ORDER);
+            long version = readHeader(buffer);
+            String[] strings = readStrings(section(buffer, "strings"));
+            Contents contents = new Contents(version,
+                readUsers(section(buffer, "users"), strings),
+                readCredentials(section(buffer, "credentials"), strings),
+                readBooks(section(buffer, "books"), strings),
+                readCopies(section(buffer, "copies"), strings),
+                readLoans(section(buffer, "loans"), strings));
+            if (buffer.hasRemaining()) {
+                throw new IOException("Corrupt snapshot file: trailing bytes");
+            }
+            return contents;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // Only reachable past a matching checksum if the file was written by a buggy writer
+            throw new IOException("Corrupt snapshot file: " + file, e);
+        }
+    }
+
+    // Writing
+
+    private static ByteBuffer header(long version) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER)
+            .putInt(MAGIC).putInt(FORMAT_VERSION).putLong(version);
+        header.putInt(crc(header.duplicate().flip()));
+        return header.flip();
+    }
+
+    private static ByteBuffer users(List<User> users, StringCodes strings) {
+        int rows = users.size();
+        ByteBuffer body = table(rows, 3 * Integer.BYTES + 2);
+        users.forEach(user -> body.putInt(strings.code(user.userId())));
+        users.forEach(user -> body.putInt(strings.code(user.name())));
+        users.forEach(user -> body.putInt(strings.code(user.email())));
+        users.forEach(user -> body.put((byte) user.role().ordinal()));
+        users.forEach(user -> body.put((byte) user.status().ordinal()));
+        return body.flip();
+    }
+
+    private static ByteBuffer credentials(List<UserCredentials> credentials, StringCodes strings) {
+        ByteBuffer body = table(credentials.size(), 2 * Integer.BYTES);
+        credentials.forEach(entry -> body.putInt(strings.code(entry.email())));
+        credentials.forEach(entry -> body.putInt(strings.code(entry.password())));
+        return body.flip();
+    }
+
+    private static ByteBuffer books(List<Book> books, StringCodes strings) {
+        ByteBuffer body = table(books.size(), 4 * Integer.BYTES);
+        books.forEach(book -> body.putInt(strings.code(book.bookId())));
+        books.forEach(book -> body.putInt(strings.code(book.title())));
+        books.forEach(book -> body.putInt(strings.code(book.author())));
+        books.forEach(book -> body.putInt(strings.code(book.isbn())));
+        return body.flip();
+    }
+
+    private static ByteBuffer copies(List<BookCopy> copies, StringCodes strings) {
+        ByteBuffer body = table(copies.size(), 2 * Integer.BYTES + 1);
+        copies.forEach(copy -> body.putInt(strings.code(copy.copyId())));
+        copies.forEach(copy -> body.putInt(strings.code(copy.bookId())));
+        copies.forEach(copy -> body.put((byte) (copy.status() == BookCopyStatus.ON_HOLD
+            ? BookCopyStatus.AVAILABLE : copy.status()).ordinal()));
+        return body.flip();
+    }
+
+    private static ByteBuffer loans(List<Loan> loans, StringCodes strings) {
+        ByteBuffer body = table(loans.size(), 3 * Integer.BYTES + 3 * (Long.BYTES + Integer.BYTES));
+        loans.forEach(loan -> body.putLong(epochSecond(loan.borrowedAt())));
+        loans.forEach(loan -> body.putLong(epochSecond(loan.dueDate())));
+        loans.forEach(loan -> body.putLong(epochSecond(loan.returnedAt())));
+        loans.forEach(loan -> body.putInt(nano(loan.borrowedAt())));
+        loans.forEach(loan -> body.putInt(nano(loan.dueDate())));
+        loans.forEach(loan -> body.putInt(nano(loan.returnedAt())));
+        loans.forEach(loan -> body.putInt(strings.code(loan.loanId())));
+        loans.forEach(loan -> body.putInt(strings.code(loan.memberId())));
+        loans.forEach(loan -> body.putInt(strings.code(loan.copyId())));
+        return body.flip();
+    }
+
+    // Row count, then the columns
+    private static ByteBuffer table(int rows, int rowBytes) {
+        return ByteBuffer.allocate(Integer.BYTES + Math.multiplyExact(rows, rowBytes)).order(ORDER).putInt(rows);
+    }
+
+    private static void writeSection(FileChannel channel, ByteBuffer body) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ORDER).putInt(body.remaining()).flip();
+        ByteBuffer checksum = ByteBuffer.allocate(Integer.BYTES).order(ORDER).putInt(crc(body.duplicate())).flip();
+        writeFully(channel, length);
+        writeFully(channel, body);
+        writeFully(channel, checksum);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Reading
+
+    private static long readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a library snapshot file");
+        }
+        int formatVersion = buffer.getInt(4);
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version: " + formatVersion);
+        }
+        if (crc(buffer.slice(0, HEADER_BYTES - Integer.BYTES)) != buffer.getInt(HEADER_BYTES - Integer.BYTES)) {
+            throw new IOException("Snapshot checksum mismatch in header");
+        }
+        long version = buffer.getLong(8);
+        buffer.position(HEADER_BYTES);
+        return version;
+    }
+
+    // Next section's body, after checking its length and checksum
+    private static ByteBuffer section(ByteBuffer buffer, String name) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() - Integer.BYTES) {
+            throw new IOException("Corrupt snapshot file: bad length of " + name + " section");
+        }
+        ByteBuffer body = buffer.slice(buffer.position(), length).order(ORDER);
+        buffer.position(buffer.position() + length);
+        if (crc(body.duplicate()) != buffer.getInt()) {
+            throw new IOException("Snapshot checksum mismatch in " + name + " section");
+        }
+        return body;
+    }
+
+    private static String[] readStrings(ByteBuffer body) {
+        int count = body.getInt();
+        int[] offsets = ints(body, count + 1);
+        byte[] utf8 = new byte[body.remaining()];
+        body.get(utf8);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = new String(utf8, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static List<User> readUsers(ByteBuffer body, String[] strings) {
+        int rows = rows(body);
+        int[] userIds = ints(body, rows);
+        int[] names = ints(body, rows);
+        int[] emails = ints(body, rows);
+        byte[] roles = bytes(body, rows);
+        byte[] statuses = bytes(body, rows);
+        UserRole[] roleValues = UserRole.values();
+        MemberStatus[] statusValues = MemberStatus.values();
+        User[] users = new User[rows];
+        for (int i = 0; i < rows; i++) {
+            users[i] = new User(string(strings, userIds[i]), string(strings, names[i]), string(strings, emails[i]),
+                roleValues[roles[i]], statusValues[statuses[i]]);
+        }
+        return List.of(users);
+    }
+
+    private static List<UserCredentials> readCredentials(ByteBuffer body, String[] strings) {
+        int rows = rows(body);
+        int[] emails = ints(body, rows);
+        int[] passwords = ints(body, rows);
+        UserCredentials[] credentials = new UserCredentials[rows];
+        for (int i = 0; i < rows; i++) {
+            credentials[i] = new UserCredentials(string(strings, emails[i]), string(strings, passwords[i]));
+        }
+        return List.of(credentials);
+    }
+
+    private static List<Book> readBooks(ByteBuffer body, String[] strings) {
+        int rows = rows(body);
+        int[] bookIds = ints(body, rows);
+        int[] titles = ints(body, rows);
+        int[] authors = ints(body, rows);
+        int[] isbns = ints(body, rows);
+        Book[] books = new Book[rows];
+        for (int i = 0; i < rows; i++) {
+            books[i] = new Book(string(strings, bookIds[i]), string(strings, titles[i]),
+                string(strings, authors[i]), string(strings, isbns[i]));
+        }
+        return List.of(books);
+    }
+
+    private static List<BookCopy> readCopies(ByteBuffer body, String[] strings) {
+        int rows = rows(body);
+        int[] copyIds = ints(body, rows);
+        int[] bookIds = ints(body, rows);
+        byte[] statuses = bytes(body, rows);
+        BookCopyStatus[] statusValues = BookCopyStatus.values();
+        BookCopy[] copies = new BookCopy[rows];
+        for (int i = 0; i < rows; i++) {
+            copies[i] = new BookCopy(string(strings, copyIds[i]), string(strings, bookIds[i]), statusValues[statuses[i]]);
+        }
+        return List.of(copies);
+    }
+
+    private static List<Loan> readLoans(ByteBuffer body, String[] strings) {
+        int rows = rows(body);
+        long[] borrowedSeconds = longs(body, rows);
+        long[] dueSeconds = longs(body, rows);
+        long[] returnedSeconds = longs(body, rows);
+        int[] borrowedNanos = ints(body, rows);
+        int[] dueNanos = ints(body, rows);
+        int[] returnedNanos = ints(body, rows);
+        int[] loanIds = ints(body, rows);
+        int[] memberIds = ints(body, rows);
+        int[] copyIds = ints(body, rows);
+        Loan[] loans = new Loan[rows];
+        for (int i = 0; i < rows; i++) {
+            loans[i] = new Loan(string(strings, loanIds[i]), string(strings, memberIds[i]), string(strings, copyIds[i]),
+                time(borrowedSeconds[i], borrowedNanos[i]), time(dueSeconds[i], dueNanos[i]),
+                time(returnedSeconds[i], returnedNanos[i]));
+        }
+        return List.of(loans);
+    }
+
+    private static int rows(ByteBuffer body) {
+        return body.getInt();
+    }
+
+    // Bulk column reads: one copy out of the mapped file per column
+
+    private static int[] ints(ByteBuffer body, int count) {
+        int[] column = new int[count];
+        body.asIntBuffer().get(column);
+        body.position(body.position() + count * Integer.BYTES);
+        return column;
+    }
+
+    private static long[] longs(ByteBuffer body, int count) {
+        long[] column = new long[count];
+        body.asLongBuffer().get(column);
+        body.position(body.position() + count * Long.BYTES);
+        return column;
+    }
+
+    private static byte[] bytes(ByteBuffer body, int count) {
+        byte[] column = new byte[count];
+        body.get(column);
+        return column;
+    }
+
+    private static String string(String[] strings, int code) {
+        return code == NULL ? null : strings[code];
+    }
+
+    // Times as UTC epoch second + nano; nano NULL marks a null time
+
+    private static long epochSecond(LocalDateTime time) {
+        return time == null ? 0 : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int nano(LocalDateTime time) {
+        return time == null ? NULL : time.getNano();
+    }
+
+    private static LocalDateTime time(long epochSecond, int nano) {
+        return nano == NULL ? null : LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static int crc(ByteBuffer bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    // Write-side string dictionary: first sighting gets the next code
+    private static final class StringCodes {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<byte[]> utf8 = new ArrayList<>();
+        private int bytes;
+
+        int code(String value) {
+            if (value == null) {
+                return NULL;
+            }
+            return codes.computeIfAbsent(value, v -> {
+                byte[] encoded = v.getBytes(StandardCharsets.UTF_8);
+                utf8.add(encoded);
+                bytes += encoded.length;
+                return utf8.size() - 1;
+            });
+        }
+
+        // count, count + 1 offsets into the UTF-8 block, then the block
+        ByteBuffer section() {
+            int count = utf8.size();
+            ByteBuffer body = ByteBuffer.allocate(Integer.BYTES * (count + 2) + bytes).order(ORDER).putInt(count);
+            int offset = 0;
+            body.putInt(offset);
+            for (byte[] encoded : utf8) {
+                offset += encoded.length;
+                body.putInt(offset);
+            }
+            utf8.forEach(body::put);
+            return body.flip();
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package jug.istanbul.library;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// DO: Indexed data store - primary-key maps over the immutable records
+// Records never change in place; "updating" one replaces the map entry with the new instance.
+// Copies are the exception: they live in a columnar CopyTable and BookCopy records are views.
+// A copy that comes free while its book has a hold queue goes straight to the next eligible
+// holder (ON_HOLD) instead of back on the shelf.
+// Thread-safe: maps are concurrent, and all copy state changes for one bookId are serialized
+// by a lock stripe, so different books can be borrowed in parallel without a global lock.
+public final class LibraryStore {
+    // Maps and dictionaries are sized from the initial lists, so loading them never rehashes
+    private final Map<String, User> users;
+    private final Map<String, Book> books;
+    private final Map<String, Loan> loans;
+    private final Map<String, UserCredentials> credentialsByEmail;
+    private final Map<String, String> userIdsByEmail;
+    // Shared id dictionaries: indexes below key on these dense codes, callers keep using strings.
+    // Each operation resolves an id once and hands the code on. Loans are looked up by their
+    // random loanId only, so they stay in a hash map: a dictionary would add a probe, not save one.
+    private final IdDictionary userIds;
+    private final IdDictionary bookIds;
+    private final IdDictionary copyIds;
+    private final LibraryVersions versions;
+    private final IsbnIndex isbns = new IsbnIndex();
+    private final CopyTable copies;
+    private final ActiveLoanIndex activeLoans = new ActiveLoanIndex();
+    private final EligibilityIndex eligibility = new EligibilityIndex();
+    private final DueDateIndex dueDates;
+    private final HoldQueue holds;
+    private final LibraryPolicy policy;
+    private final ReentrantLock[] stripes;
+
+    public LibraryStore(
+        List<User> users,
+        List<UserCredentials> credentials,
+        List<Book> books,
+        List<BookCopy> bookCopies,
+        List<Loan> loans
+    ) {
+        this(users, credentials, books, bookCopies, loans, LibraryPolicy.DEFAULT);
+    }
+
+    // Same store under explicit lending rules (loan limit, hold pickup period)
+    public LibraryStore(
+        List<User> users,
+        List<UserCredentials> credentials,
+        List<Book> books,
+        List<BookCopy> bookCopies,
+        List<Loan> loans,
+        LibraryPolicy policy
+    ) {
+        this.users = new ConcurrentHashMap<>(users.size());
+        this.books = new ConcurrentHashMap<>(books.size());
+        this.loans = new ConcurrentHashMap<>(loans.size());
+        this.credentialsByEmail = new ConcurrentHashMap<>(credentials.size());
+        this.userIdsByEmail = new ConcurrentHashMap<>(users.size());
+        this.userIds = new IdDictionary(users.size());
+        this.bookIds = new IdDictionary(books.size());
+        this.copyIds = new IdDictionary(bookCopies.size());
+        this.versions = new LibraryVersions(copyIds, bookIds);
+        this.copies = new CopyTable(copyIds, bookIds);
+        this.dueDates = new DueDateIndex(userIds, activeLoans, eligibility);
+        this.holds = new HoldQueue(userIds);
+        this.policy = policy;
+        // Power of two, a few stripes per core to keep collisions between hot books rare
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 8 - 1) << 1;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        users.forEach(this::putUser);
+        credentials.forEach(this::putCredentials);
+        books.forEach(this::putBook);
+        bookCopies.forEach(this::putCopy);
+        loans.forEach(this::putLoan);
+        // One initial version for all of the above (see LibraryVersions)
+        versions.publishLoaded();
+    }
+
+    // Lookups by primary key - O(1)
+    public Optional<User> findUser(String userId) {
+        return Optional.ofNullable(users.get(userId));
+    }
+
+    public Optional<Book> findBook(String bookId) {
+        return Optional.ofNullable(books.get(bookId));
+    }
+
+    public Optional<BookCopy> findCopy(String copyId) {
+        int row = copies.rowOf(copyId);
+        return row < 0 ? Optional.empty() : Optional.of(copies.view(row));
+    }
+
+    public Optional<Loan> findLoan(String loanId) {
+        return Optional.ofNullable(loans.get(loanId));
+    }
+
+    // ISBN-10 or ISBN-13, with or without hyphens - one primitive-keyed probe, no catalog scan
+    public Optional<Book> findBookByIsbn(String isbn) {
+        return Optional.ofNullable(isbns.find(isbn)).map(books::get);
+    }
+
+    // Login fast path - one hash probe each; the email index stores the userId, so it always
+    // resolves to the current User record (e.g. after block/unblock)
+    public Optional<UserCredentials> findCredentials(String email) {
+        return Optional.ofNullable(credentialsByEmail.get(email));
+    }
+
+    public Optional<User> findUserByEmail(String email) {
+        return Optional.ofNullable(userIdsByEmail.get(email)).map(users::get);
+    }
+
+    // Insert or replace by primary key - O(1). An email belongs to one user: putting or updating
+    // a user onto another user's email throws IllegalArgumentException and changes nothing.
+    public void putUser(User user) {
+        users.compute(user.userId(), (id, previous) -> reindexUser(previous, user));
+        versions.publishPending();
+    }
+
+    // Atomic read-modify-write of one user; empty if the user does not exist
+    public Optional<User> updateUser(String userId, UnaryOperator<User> update) {
+        User updated = users.computeIfPresent(userId, (id, user) -> reindexUser(user, update.apply(user)));
+        versions.publishPending();
+        return Optional.ofNullable(updated);
+    }
+
+    // Credentials are keyed by email, which names one user, so a later entry is that user's new
+    // password and replaces the earlier one - the same last-wins as putUser for one userId
+    public void putCredentials(UserCredentials credentials) {
+        credentialsByEmail.put(credentials.email(), credentials);
+    }
+
+    // Returns the book this one replaced, if any
+    public Optional<Book> putBook(Book book) {
+        return putBook(book, replaced -> {});
+    }
+
+    // Same, then hands the replaced book to alsoIndex before releasing the book's stripe, so
+    // indexes kept outside the store (search, autocomplete) apply one book's updates in the
+    // same order as the store
+    public Optional<Book> putBook(Book book, Consumer<Optional<Book>> alsoIndex) {
+        ReentrantLock lock = stripeFor(book.bookId());
+        lock.lock();
+        try {
+            Book[] replaced = new Book[1];
+            // compute keeps the map and the ISBN index in step for concurrent writers of one book
+            books.compute(book.bookId(), (id, previous) -> {
+                isbns.update(previous, book);
+                versions.put(bookIds.intern(book.bookId()), book);
+                replaced[0] = previous;
+                return book;
+            });
+            Optional<Book> previous = Optional.ofNullable(replaced[0]);
+            alsoIndex.accept(previous);
+            return previous;
+        } finally {
+            lock.unlock();
+            versions.publishPending();
+        }
+    }
+
+    // Insert-only: false (and no change) if the copyId already exists, whatever its status
+    public boolean putCopy(BookCopy copy) {
+        ReentrantLock lock = stripeFor(copy.bookId());
+        lock.lock();
+        try {
+            int row = copies.insert(copy);
+            if (row < 0) {
+                return false;
+            }
+            publish(row, null);
+            int bookCode = copies.bookCodeOf(row);
+            if (copy.status() == BookCopyStatus.AVAILABLE && holds.hasWaiting(bookCode)) {
+                assignFreeCopies(bookCode, LocalDateTime.now());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+            versions.publishPending();
+        }
+    }
+
+    // Under the stripe of the loan's book, if its copy is known, like every other loan change
+    public void putLoan(Loan loan) {
+        int row = copies.rowOf(loan.copyId());
+        if (row < 0) {
+            storeLoan(loan, -1);
+            versions.publishPending();
+            return;
+        }
+        ReentrantLock lock = stripeFor(copies.bookIdOf(row));
+        lock.lock();
+        try {
+            storeLoan(loan, row);
+        } finally {
+            lock.unlock();
+            versions.publishPending();
+        }
+    }
+
+    // Atomically lend the first available copy of a book: mark it borrowed and record the loan
+    // built by newLoan. A copy can only be lent once: check, status change and loan happen under
+    // one stripe, so a concurrent return of the same copy never sees it without its loan.
+    public Optional<Loan> lendAvailableCopy(String bookId, Function<BookCopy, Loan> newLoan) {
+        return lendAvailableCopies(bookId, List.of(newLoan)).stream().findFirst();
+    }
+
+    // Batch form of lendAvailableCopy: one stripe acquisition lends up to newLoans.size() copies,
+    // applying the i-th factory to the i-th copy. Returns the loans made, in factory order.
+    public List<Loan> lendAvailableCopies(String bookId, List<Function<BookCopy, Loan>> newLoans) {
+        int bookCode = bookIds.code(bookId);
+        ReentrantLock lock = stripeFor(bookId);
+        lock.lock();
+        try {
+            List<Loan> lent = new ArrayList<>(newLoans.size());
+            for (Function<BookCopy, Loan> newLoan : newLoans) {
+                int row = copies.firstAvailableRow(bookCode);
+                if (row < 0) {
+                    break;
+                }
+                copies.setStatus(row, BookCopyStatus.BORROWED);
+                BookCopy borrowed = copies.view(row);
+                Loan loan = newLoan.apply(borrowed);
+                storeLoan(loan, row);
+                holds.removeWaiting(loan.memberId(), bookId, bookCode); // no longer waiting for it
+                lent.add(loan);
+            }
+            return lent;
+        } finally {
+            lock.unlock();
+            versions.publishPending();
+        }
+    }
+
+    // Atomically close the active loan of a copy and make the copy available again - or, if
+    // the book has waiting holds, set it aside for the next eligible holder in the same step.
+    // Empty if the copy is unknown or not on loan.
+    public Optional<Loan> returnCopy(String copyId, LocalDateTime returnedAt) {
+        return returnCopy(copyId, returnedAt, null);
+    }
+
+    // Self-service form: only closes the copy's active loan if it belongs to memberId; the
+    // ownership check happens under the same stripe as the return, so it cannot go stale
+    public Optional<Loan> returnCopy(String copyId, LocalDateTime returnedAt, String memberId) {
+        expireHolds(returnedAt);
+        int row = copies.rowOf(copyId);
+        if (row < 0) {
+            return Optional.empty();
+        }
+        int bookCode = copies.bookCodeOf(row);
+        ReentrantLock lock = stripeFor(bookIds.id(bookCode));
+        lock.lock();
+        try {
+            if (copies.status(row) != BookCopyStatus.BORROWED) {
+                return Optional.empty();
+            }
+            Optional<Loan> active = activeLoans.activeLoanForCopy(row);
+            if (memberId != null && active.filter(loan -> loan.memberId().equals(memberId)).isEmpty()) {
+                return Optional.empty();
+            }
+            copies.setStatus(row, BookCopyStatus.AVAILABLE);
+            Optional<Loan> closed = active.map(loan -> loan.returnBook(returnedAt));
+            closed.ifPresentOrElse(loan -> storeLoan(loan, row), () -> publish(row, null));
+            assignFreeCopies(bookCode, returnedAt);
+            return closed;
+        } finally {
+            lock.unlock();
+            versions.publishPending();
+        }
+    }
+
+    // Join the book's FIFO hold queue, or get the member's existing hold on it. A free copy
+    // nobody is waiting for is set aside at once. Empty if the member may not borrow right now
+    // or already has a copy of the book on loan.
+    // A member the store has no record of is judged by the User passed in.
+    public Optional<Hold> placeHold(User member, String bookId, LocalDateTime now) {
+        expireHolds(now);
+        dueDates.advance(now);
+        int code = userIds.intern(member.userId());
+        eligibility.seed(code, !UserOperations.isActiveMember(member));
+        if (!eligibility.get(code).canBorrow(policy)) {
+            return Optional.empty();
+        }
+        int bookCode = bookIds.intern(bookId);
+        ReentrantLock lock = stripeFor(bookId);
+        lock.lock();
+        try {
+            Optional<Hold> existing = holds.find(member.userId(), bookId);
+            if (existing.isPresent()) {
+                return existing;
+            }
+            if (hasCopyOnLoan(code, bookCode)) {
+                return Optional.empty();
+            }
+            holds.enqueue(Hold.create(member.userId(), bookId, now), code, bookCode);
+            assignFreeCopies(bookCode, now);
+            return holds.find(member.userId(), bookId);
+        } finally {
+            lock.unlock();
+            versions.publishPending();
+        }
+    }
+
+    // Lend the copy set aside for the member's ready hold on this book, if there is one.
+    // One hash probe (no lock) when the member holds nothing ready for the book.
+    public Optional<Loan> claimHold(String memberId, String bookId, LocalDateTime now, Function<BookCopy, Loan> newLoan) {
+        if (holds.find(memberId, bookId).filter(Hold::isReady).isEmpty()) {
+            return Optional.empty();
+        }
+        expireHolds(now);
+        ReentrantLock lock = stripeFor(bookId);
+        lock.lock();
+        try {
+            Optional<Hold> ready = holds.find(memberId, bookId).filter(Hold::isReady);
+            if (ready.isEmpty() || ready.get().isExpired(now)) {
+                return Optional.empty();
+            }
+            int row = heldRow(ready.get());
+            // A stale hold is dropped without touching the copy; the caller lends normally
+            if (!holds.remove(ready.get()) || row < 0) {
+                return Optional.empty();
+            }
+            copies.setStatus(row, BookCopyStatus.BORROWED);
+            BookCopy borrowed = copies.view(row);
+            Loan loan = newLoan.apply(borrowed);
+            storeLoan(loan, row);
+            return Optional.of(loan);
+        } finally {
+            lock.unlock();
+            versions.publishPending();
+        }
+    }
+
+    // Release every ready hold left unclaimed past its pickup deadline; each copy goes to the
+    // book's next eligible holder or back on the shelf. Cheap when nothing has expired.
+    public List<Hold> expireHolds(LocalDateTime now) {
+        List<Hold> expired = new ArrayList<>();
+        for (Hold hold : holds.expired(now)) {
+            ReentrantLock lock = stripeFor(hold.bookId());
+            lock.lock();
+            try {
+                int row = heldRow(hold);
+                // remove is false if the member claimed it in the meantime; a stale hold is
+                // dropped without touching the copy
+                if (holds.remove(hold) && row >= 0) {
+                    copies.setStatus(row, BookCopyStatus.AVAILABLE);
+                    publish(row, null);
+                    assignFreeCopies(copies.bookCodeOf(row), now);
+                    expired.add(hold);
+                }
+            } finally {
+                lock.unlock();
+                versions.publishPending();
+            }
+        }
+        return expired;
+    }
+
+    // A member's holds, waiting or ready - from the member's own index, no queue scans
+    public List<Hold> holds(String memberId) {
+        return holds.holds(memberId);
+    }
+
+    // Holds that got a copy set aside since the last call
+    public List<Hold> drainReadyHolds() {
+        return holds.drainNewlyReady();
+    }
+
+    // Availability per book from the copy table's status bits and per-book counters
+    public Optional<BookCopy> firstAvailableCopy(String bookId) {
+        ReentrantLock lock = stripeFor(bookId);
+        lock.lock();
+        try {
+            int row = copies.firstAvailableRow(bookId);
+            return row < 0 ? Optional.empty() : Optional.of(copies.view(row));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int availableCopyCount(String bookId) {
+        ReentrantLock lock = stripeFor(bookId);
+        lock.lock();
+        try {
+            return copies.availableCount(bookId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<BookCopy> availableCopies(String bookId) {
+        ReentrantLock lock = stripeFor(bookId);
+        lock.lock();
+        try {
+            return copies.available(bookId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Loan> activeLoanForCopy(String copyId) {
+        return activeLoans.activeLoanForCopy(copyIds.code(copyId));
+    }
+
+    // Active loans per member, earliest due first - no scan over loan history
+    public List<Loan> activeLoans(String memberId) {
+        return activeLoans.activeLoans(userIds.code(memberId));
+    }
+
+    // A member's active loans joined to their copies and books, earliest due first. The index
+    // keeps each loan's copy code, so only the book is looked up by id.
+    public List<LoanOperations.BookLoanInfo> borrowedBooks(String memberId) {
+        List<ActiveLoanIndex.Entry> entries = activeLoans.entries(userIds.code(memberId));
+        List<LoanOperations.BookLoanInfo> result = new ArrayList<>(entries.size());
+        for (ActiveLoanIndex.Entry entry : entries) {
+            if (copies.isCopy(entry.copyCode())) {
+                BookCopy copy = copies.view(entry.copyCode());
+                result.add(new LoanOperations.BookLoanInfo(books.get(copy.bookId()), copy, entry.loan()));
+            }
+        }
+        return result;
+    }
+
+    // Drains whatever fell due since the last call, then reads the member's overdue flag.
+    // now must not go backwards between calls.
+    public boolean hasOverdueLoans(String memberId, LocalDateTime now) {
+        return eligibility(memberId, now).overdue();
+    }
+
+    public MemberEligibility eligibility(String memberId, LocalDateTime now) {
+        dueDates.advance(now);
+        return eligibility.get(userIds.code(memberId));
+    }
+
+    // Borrow gate: reserve one loan slot if the member may borrow under the policy right now.
+    // Pair every successful reservation with releaseLoanReservation once the lend is done.
+    // A member the store has no record of is judged by the User passed in.
+    public boolean reserveLoan(User member, LocalDateTime now) {
+        dueDates.advance(now);
+        int code = userIds.intern(member.userId());
+        eligibility.seed(code, !UserOperations.isActiveMember(member));
+        return eligibility.tryReserve(code, policy);
+    }
+
+    public void releaseLoanReservation(String memberId) {
+        eligibility.release(userIds.code(memberId));
+    }
+
+    // Loans that became overdue by now and were not reported before, in due-date order
+    public List<Loan> drainOverdueLoans(LocalDateTime now) {
+        dueDates.advance(now);
+        return dueDates.drainNewlyOverdue();
+    }
+
+    // Active loans due in [from, to) that are not overdue yet, earliest first
+    public List<Loan> loansDueBetween(LocalDateTime from, LocalDateTime to) {
+        return dueDates.dueBetween(from, to);
+    }
+
+    public List<Loan> overdueLoans(String memberId, LocalDateTime now) {
+        return activeLoans.overdueLoans(userIds.code(memberId), now);
+    }
+
+    // Current version of everything, for reporting queries: pin it and read it without locks
+    public LibrarySnapshot snapshot() {
+        return versions.current();
+    }
+
+    // Point-in-time snapshots in insertion order: O(1) to hand out, never change afterwards
+    public List<User> users() {
+        return versions.current().users();
+    }
+
+    public List<Book> books() {
+        return versions.current().books();
+    }
+
+    // Read-only, weakly consistent views for the pure *Operations functions (no copying)
+    public Collection<BookCopy> bookCopies() {
+        return copies.copies();
+    }
+
+    public Collection<Loan> loans() {
+        return Collections.unmodifiableCollection(loans.values());
+    }
+
+    // Read-only primary-key maps, reusable as the build side of hash joins
+    public Map<String, Book> booksById() {
+        return Collections.unmodifiableMap(books);
+    }
+
+    public Map<String, BookCopy> bookCopiesById() {
+        return copies.copiesById();
+    }
+
+    public Collection<UserCredentials> credentials() {
+        return Collections.unmodifiableCollection(credentialsByEmail.values());
+    }
+
+    // Set free copies of a book aside for its waiting holders, oldest eligible hold first.
+    // Caller holds the book's stripe.
+    private void assignFreeCopies(int bookCode, LocalDateTime now) {
+        while (holds.hasWaiting(bookCode)) {
+            int row = copies.firstAvailableRow(bookCode);
+            if (row < 0) {
+                return;
+            }
+            Optional<Hold> next = holds.pollEligible(bookCode,
+                memberId -> eligibility.get(userIds.code(memberId)).canBorrow(policy));
+            if (next.isEmpty()) {
+                return;
+            }
+            copies.setStatus(row, BookCopyStatus.ON_HOLD);
+            holds.markReady(next.get(), next.get().ready(copyIds.id(row), now.plus(policy.holdPickupPeriod())));
+            publish(row, null);
+        }
+    }
+
+    // Whether the member has an active loan on a copy of the book; a member has few loans, so
+    // this walks them. Caller holds the book's stripe.
+    private boolean hasCopyOnLoan(int memberCode, int bookCode) {
+        for (ActiveLoanIndex.Entry entry : activeLoans.entries(memberCode)) {
+            if (copies.isCopy(entry.copyCode()) && copies.bookCodeOf(entry.copyCode()) == bookCode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The row of the copy set aside for a ready hold, or -1 if the hold went stale: the copy is
+    // no longer ON_HOLD, is set aside for another hold, or has an active loan. Caller holds the
+    // book's stripe.
+    private int heldRow(Hold ready) {
+        int row = copies.rowOf(ready.copyId());
+        return row >= 0 && copies.status(row) == BookCopyStatus.ON_HOLD && holds.owns(ready)
+            && activeLoans.activeLoanForCopy(row).isEmpty() ? row : -1;
+    }
+
+    // Record a loan and publish it with its copy's current state in one version (copyRow is -1
+    // for a loan of an unknown copy). Member and copy codes are resolved once here; compute
+    // keeps the map, the indexes and the version order in step for concurrent writers of one
+    // loan. Caller holds the copy's book stripe.
+    private void storeLoan(Loan loan, int copyRow) {
+        int member = userIds.intern(loan.memberId());
+        int copyCode = copyRow >= 0 ? copyRow : copyIds.intern(loan.copyId());
+        loans.compute(loan.loanId(), (id, previous) -> {
+            int previousMember = previous == null || previous.memberId().equals(loan.memberId())
+                ? member : userIds.intern(previous.memberId());
+            int previousCopy = previous == null || previous.copyId().equals(loan.copyId())
+                ? copyCode : copyIds.intern(previous.copyId());
+            activeLoans.update(previous, previousMember, previousCopy, loan, member, copyCode);
+            int delta = (loan.isActive() ? 1 : 0) - (previous != null && previous.isActive() ? 1 : 0);
+            if (delta != 0) {
+                eligibility.addActiveLoans(member, delta);
+            }
+            dueDates.update(previous, previousMember, loan);
+            if (copyRow >= 0) {
+                publish(copyRow, loan);
+            } else {
+                versions.put(-1, -1, null, loan);
+            }
+            return loan;
+        });
+    }
+
+    // Publish a copy's current state, with the loan that changed with it if any.
+    // Caller holds the book's stripe.
+    private void publish(int row, Loan loan) {
+        versions.put(row, copies.bookCodeOf(row), copies.status(row), loan);
+    }
+
+    // Runs inside the users map's compute for this userId
+    private User reindexUser(User previous, User current) {
+        // Emails are unique: claim this one before anything changes, so a clash leaves the map,
+        // the index and the version untouched (compute rethrows without storing)
+        String owner = userIdsByEmail.putIfAbsent(current.email(), current.userId());
+        if (owner != null && !owner.equals(current.userId())) {
+            throw new IllegalArgumentException("Email already registered: " + current.email());
+        }
+        if (previous != null && !previous.email().equals(current.email())) {
+            userIdsByEmail.remove(previous.email(), previous.userId());
+        }
+        int code = userIds.intern(current.userId());
+        versions.put(code, current);
+        eligibility.setBlocked(code, !UserOperations.isActiveMember(current));
+        return current;
+    }
+
+    private ReentrantLock stripeFor(String bookId) {
+        int h = bookId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+}
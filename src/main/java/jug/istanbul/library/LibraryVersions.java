@@ -0,0 +1,209 @@
+package jug.istanbul.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Multi-version state behind LibraryStore. Writers append their change to a lock-free queue
+// (under their book's stripe, if any) and, once that stripe is released, call publishPending():
+// whoever gets the fold lock folds everything queued so far into the previous immutable
+// LibrarySnapshot (structurally shared: PersistentVectors for users, books and loans,
+// CopyColumns for copies) and publishes it with one volatile write. Writers waiting for the
+// lock usually find their change folded already, so concurrent writes share folds.
+// Readers never take the lock: current() is that one volatile read.
+//
+// A copy change and the loan that goes with it are one queue entry, enqueued under the book's
+// stripe, so the changes of one book reach the queue in the order they happened and any
+// prefix of the queue is a consistent version: never a lent copy without its loan.
+//
+// While LibraryStore's constructor loads the initial records, changes are only collected;
+// publishLoaded() then builds the first version from them in one pass (plain lists turned
+// into vectors once, one CopyColumns editor) instead of folding them batch by batch.
+final class LibraryVersions {
+    private static final int NO_POSITION = -1;
+
+    private sealed interface Change {}
+
+    private record UserChange(int code, User user) implements Change {}
+
+    private record BookChange(int code, Book book) implements Change {}
+
+    // copyCode is -1 for a loan alone; loan is null for a copy alone
+    private record CopyChange(int copyCode, int bookCode, BookCopyStatus status, Loan loan) implements Change {}
+
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock folding = new ReentrantLock();
+    private volatile LibrarySnapshot current;
+
+    // Fold state, guarded by folding. Users and books are positioned by dictionary code;
+    // loans have no code (they are keyed by their random loanId), so they keep a map.
+    private int[] userPositions = new int[0];
+    private int[] bookPositions = new int[0];
+    private final Map<String, Integer> loanPositions = new HashMap<>();
+    private CopyColumns copies;
+    // Changes put during construction; null once publishLoaded() has run. Only the
+    // constructing thread sees it non-null (LibraryStore publishes itself after that).
+    private List<Change> loading = new ArrayList<>();
+
+    LibraryVersions(IdDictionary copyIds, IdDictionary bookIds) {
+        copies = CopyColumns.empty(copyIds, bookIds);
+        current = new LibrarySnapshot(0, PersistentVector.empty(), PersistentVector.empty(), copies,
+            PersistentVector.empty());
+    }
+
+    // Never blocks. Every write that returned before the call is in the returned version.
+    LibrarySnapshot current() {
+        return current;
+    }
+
+    // Returns once every change queued before the call is in current(). Callers hold no stripe,
+    // so a write waiting here never holds up other writes of its book.
+    void publishPending() {
+        if (pendingCount.get() == 0) {
+            return;
+        }
+        folding.lock();
+        try {
+            fold();
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    void put(int userCode, User user) {
+        enqueue(new UserChange(userCode, user));
+    }
+
+    void put(int bookCode, Book book) {
+        enqueue(new BookChange(bookCode, book));
+    }
+
+    // A copy's state and/or a loan in one version (copyCode -1: loan only; loan null: copy only).
+    // Caller holds the copy's book stripe.
+    void put(int copyCode, int bookCode, BookCopyStatus status, Loan loan) {
+        enqueue(new CopyChange(copyCode, bookCode, status, loan));
+    }
+
+    // Ends loading: everything put so far becomes one version, with the version number
+    // folding the same changes would have reached
+    void publishLoaded() {
+        List<User> users = new ArrayList<>();
+        List<Book> books = new ArrayList<>();
+        List<Loan> loans = new ArrayList<>();
+        CopyColumns.Editor copyEditor = copies.edit();
+        for (Change loaded : loading) {
+            switch (loaded) {
+                case UserChange change -> {
+                    userPositions = ensure(userPositions, change.code());
+                    set(users, userPositions, change.code(), change.user());
+                }
+                case BookChange change -> {
+                    bookPositions = ensure(bookPositions, change.code());
+                    set(books, bookPositions, change.code(), change.book());
+                }
+                case CopyChange change -> {
+                    if (change.copyCode() >= 0) {
+                        copyEditor.put(change.copyCode(), change.bookCode(), change.status());
+                    }
+                    if (change.loan() != null) {
+                        Integer position = loanPositions.putIfAbsent(change.loan().loanId(), loans.size());
+                        if (position == null) {
+                            loans.add(change.loan());
+                        } else {
+                            loans.set(position, change.loan());
+                        }
+                    }
+                }
+            }
+        }
+        copies = copyEditor.freeze();
+        current = new LibrarySnapshot(loading.size(), PersistentVector.copyOf(users), PersistentVector.copyOf(books),
+            copies, PersistentVector.copyOf(loans));
+        loading = null;
+    }
+
+    private void enqueue(Change change) {
+        if (loading != null) {
+            loading.add(change);
+            return;
+        }
+        pending.add(change);
+        pendingCount.incrementAndGet();
+    }
+
+    // Caller holds folding. Takes only the changes queued when it starts, so a steady stream
+    // of writers cannot keep it running.
+    @SuppressWarnings("unchecked")
+    private void fold() {
+        int count = pendingCount.get();
+        if (count == 0) {
+            return;
+        }
+        LibrarySnapshot base = current;
+        PersistentVector<User> users = (PersistentVector<User>) base.users();
+        PersistentVector<Book> books = (PersistentVector<Book>) base.books();
+        PersistentVector<Loan> loans = (PersistentVector<Loan>) base.loans();
+        CopyColumns.Editor copyEditor = null;
+        for (int i = 0; i < count; i++) {
+            switch (pending.remove()) {
+                case UserChange change -> {
+                    userPositions = ensure(userPositions, change.code());
+                    users = put(users, userPositions, change.code(), change.user());
+                }
+                case BookChange change -> {
+                    bookPositions = ensure(bookPositions, change.code());
+                    books = put(books, bookPositions, change.code(), change.book());
+                }
+                case CopyChange change -> {
+                    if (change.copyCode() >= 0) {
+                        copyEditor = copyEditor == null ? copies.edit() : copyEditor;
+                        copyEditor.put(change.copyCode(), change.bookCode(), change.status());
+                    }
+                    if (change.loan() != null) {
+                        Integer position = loanPositions.putIfAbsent(change.loan().loanId(), loans.size());
+                        loans = position == null ? loans.append(change.loan()) : loans.with(position, change.loan());
+                    }
+                }
+            }
+        }
+        pendingCount.addAndGet(-count);
+        if (copyEditor != null) {
+            copies = copyEditor.freeze();
+        }
+        current = new LibrarySnapshot(base.version() + count, users, books, copies, loans);
+    }
+
+    private static <T> PersistentVector<T> put(PersistentVector<T> vector, int[] positions, int code, T value) {
+        if (positions[code] == NO_POSITION) {
+            positions[code] = vector.size();
+            return vector.append(value);
+        }
+        return vector.with(positions[code], value);
+    }
+
+    private static <T> void set(List<T> list, int[] positions, int code, T value) {
+        if (positions[code] == NO_POSITION) {
+            positions[code] = list.size();
+            list.add(value);
+        } else {
+            list.set(positions[code], value);
+        }
+    }
+
+    private static int[] ensure(int[] positions, int code) {
+        if (code < positions.length) {
+            return positions;
+        }
+        int length = positions.length;
+        int[] grown = Arrays.copyOf(positions, Math.max(code + 1, length * 2));
+        Arrays.fill(grown, length, grown.length, NO_POSITION);
+        return grown;
+    }
+}
@@ -22,7 +22,12 @@ public record Loan(
     
     // Check if overdue
     public boolean isOverdue() {
-        return isActive() && LocalDateTime.now().isAfter(dueDate);
+        return isOverdue(LocalDateTime.now());
+    }
+    
+    // Check if overdue at a given time (lets callers sample the clock once)
+    public boolean isOverdue(LocalDateTime now) {
+        return isActive() && now.isAfter(dueDate);
     }
     
     // Return book (immutable)
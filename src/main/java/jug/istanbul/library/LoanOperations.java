@@ -1,7 +1,12 @@
 package jug.istanbul.library;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 // DO: Separate behavior - Loan operations
@@ -9,7 +14,7 @@ public class LoanOperations {
     private LoanOperations() {} // Utility class
     
     // Get active loans for a member
-    public static List<Loan> getActiveLoans(List<Loan> loans, String memberId) {
+    public static List<Loan> getActiveLoans(Collection<Loan> loans, String memberId) {
         return loans.stream()
             .filter(loan -> loan.memberId().equals(memberId))
             .filter(Loan::isActive)
@@ -17,45 +22,88 @@ public class LoanOperations {
     }
     
     // Get overdue loans for a member
-    public static List<Loan> getOverdueLoans(List<Loan> loans, String memberId) {
+    public static List<Loan> getOverdueLoans(Collection<Loan> loans, String memberId) {
+        return getOverdueLoans(loans, memberId, LocalDateTime.now());
+    }
+    
+    public static List<Loan> getOverdueLoans(Collection<Loan> loans, String memberId, LocalDateTime now) {
         return loans.stream()
             .filter(loan -> loan.memberId().equals(memberId))
-            .filter(Loan::isOverdue)
+            .filter(loan -> loan.isOverdue(now))
             .collect(Collectors.toList());
     }
     
     // Check if member has overdue books
-    public static boolean hasOverdueBooks(List<Loan> loans, String memberId) {
+    public static boolean hasOverdueBooks(Collection<Loan> loans, String memberId) {
+        return hasOverdueBooks(loans, memberId, LocalDateTime.now());
+    }
+    
+    public static boolean hasOverdueBooks(Collection<Loan> loans, String memberId, LocalDateTime now) {
         return loans.stream()
             .filter(loan -> loan.memberId().equals(memberId))
-            .anyMatch(Loan::isOverdue);
+            .anyMatch(loan -> loan.isOverdue(now));
     }
     
     // Get all books borrowed by a member (with book details)
     public static List<BookLoanInfo> getBorrowedBooks(
-        List<Loan> loans,
-        List<BookCopy> copies,
-        List<Book> books,
+        Collection<Loan> loans,
+        Collection<BookCopy> copies,
+        Collection<Book> books,
         String memberId
     ) {
-        return getActiveLoans(loans, memberId).stream()
-            .map(loan -> {
-                BookCopy copy = copies.stream()
-                    .filter(c -> c.copyId().equals(loan.copyId()))
-                    .findFirst()
-                    .orElse(null);
-                    
-                if (copy == null) return null;
-                
-                Book book = books.stream()
-                    .filter(b -> b.bookId().equals(copy.bookId()))
-                    .findFirst()
-                    .orElse(null);
-                    
-                return new BookLoanInfo(book, copy, loan);
-            })
-            .filter(info -> info != null)
-            .collect(Collectors.toList());
+        return getBorrowedBooks(getActiveLoans(loans, memberId), indexCopies(copies), indexBooks(books));
+    }
+    
+    // Batch variant: one pass over the loans, one hash build per side, for many members at once
+    public static Map<String, List<BookLoanInfo>> getBorrowedBooks(
+        Collection<Loan> loans,
+        Collection<BookCopy> copies,
+        Collection<Book> books,
+        Collection<String> memberIds
+    ) {
+        Map<String, List<Loan>> activeByMember = new LinkedHashMap<>();
+        memberIds.forEach(memberId -> activeByMember.put(memberId, new ArrayList<>()));
+        for (Loan loan : loans) {
+            List<Loan> memberLoans = activeByMember.get(loan.memberId());
+            if (memberLoans != null && loan.isActive()) {
+                memberLoans.add(loan);
+            }
+        }
+        
+        Map<String, BookCopy> copiesById = indexCopies(copies);
+        Map<String, Book> booksById = indexBooks(books);
+        Map<String, List<BookLoanInfo>> result = new LinkedHashMap<>();
+        activeByMember.forEach((memberId, memberLoans) ->
+            result.put(memberId, getBorrowedBooks(memberLoans, copiesById, booksById)));
+        return result;
+    }
+    
+    // Hash join of active loans against prebuilt copyId / bookId indexes
+    public static List<BookLoanInfo> getBorrowedBooks(
+        Collection<Loan> activeLoans,
+        Map<String, BookCopy> copiesById,
+        Map<String, Book> booksById
+    ) {
+        List<BookLoanInfo> result = new ArrayList<>(activeLoans.size());
+        for (Loan loan : activeLoans) {
+            BookCopy copy = copiesById.get(loan.copyId());
+            if (copy == null) continue;
+            
+            result.add(new BookLoanInfo(booksById.get(copy.bookId()), copy, loan));
+        }
+        return result;
+    }
+    
+    private static Map<String, BookCopy> indexCopies(Collection<BookCopy> copies) {
+        Map<String, BookCopy> copiesById = new HashMap<>();
+        copies.forEach(copy -> copiesById.putIfAbsent(copy.copyId(), copy));
+        return copiesById;
+    }
+    
+    private static Map<String, Book> indexBooks(Collection<Book> books) {
+        Map<String, Book> booksById = new HashMap<>();
+        books.forEach(book -> booksById.putIfAbsent(book.bookId(), book));
+        return booksById;
     }
     
     // Helper record for loan information
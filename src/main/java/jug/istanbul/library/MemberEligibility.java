@@ -0,0 +1,12 @@
+package jug.istanbul.library;
+
+// DO: Simple immutable data - everything the borrow gate needs about one member,
+// kept current on borrow, return, block/unblock and the overdue transition.
+// blocked covers anyone who is not an active member (blocked status, librarians, unknown ids).
+public record MemberEligibility(int activeLoans, boolean overdue, boolean blocked) {
+    static final MemberEligibility UNKNOWN = new MemberEligibility(0, false, true);
+
+    public boolean canBorrow(LibraryPolicy policy) {
+        return !blocked && !overdue && activeLoans < policy.maxActiveLoans();
+    }
+}
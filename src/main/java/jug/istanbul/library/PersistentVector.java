@@ -0,0 +1,156 @@
+package jug.istanbul.library;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Persistent (immutable, structurally shared) vector: a 32-way trie plus a tail buffer.
+// append/with copy only the path to the changed slot (at most ~7 small arrays), so every
+// earlier version stays valid and shares all other nodes. Handing one out is O(1).
+// The List view is read-only; "modifying" methods return a new vector instead.
+public final class PersistentVector<T> extends AbstractList<T> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    // Vector of the given values in order, built bottom-up in O(n): full leaves are filled
+    // straight from the list and grouped into parents level by level, with no intermediate
+    // versions (n appends would copy a path each)
+    public static <T> PersistentVector<T> copyOf(List<? extends T> values) {
+        int size = values.size();
+        if (size == 0) {
+            return empty();
+        }
+        int tailOffset = size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+        List<Object[]> nodes = new ArrayList<>(tailOffset >>> BITS);
+        for (int from = 0; from < tailOffset; from += WIDTH) {
+            nodes.add(values.subList(from, from + WIDTH).toArray());
+        }
+        int shift = BITS;
+        while (nodes.size() > WIDTH) {
+            List<Object[]> parents = new ArrayList<>((nodes.size() + MASK) >>> BITS);
+            for (int from = 0; from < nodes.size(); from += WIDTH) {
+                parents.add(Arrays.copyOf(nodes.subList(from, Math.min(from + WIDTH, nodes.size())).toArray(), WIDTH));
+            }
+            nodes = parents;
+            shift += BITS;
+        }
+        Object[] root = Arrays.copyOf(nodes.toArray(), WIDTH);
+        return new PersistentVector<>(size, shift, root, values.subList(tailOffset, size).toArray());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return (T) leafFor(index)[index & MASK];
+    }
+
+    // New vector with value added at the end
+    public PersistentVector<T> append(T value) {
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = value;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        // Tail is full: push it into the trie, growing a level when the root is full
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {value});
+    }
+
+    // New vector with the element at index replaced
+    public PersistentVector<T> with(int index, T value) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = value;
+            return new PersistentVector<>(size, shift, root, newTail);
+        }
+        return new PersistentVector<>(size, shift, replace(shift, root, index, value), tail);
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int slot = ((size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        if (level == BITS) {
+            copy[slot] = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[slot];
+            copy[slot] = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+    private static Object[] replace(int level, Object[] node, int index, Object value) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            int slot = (index >>> level) & MASK;
+            copy[slot] = replace(level - BITS, (Object[]) node[slot], index, value);
+        }
+        return copy;
+    }
+}
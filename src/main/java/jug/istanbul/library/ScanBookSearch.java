@@ -0,0 +1,118 @@
+package jug.istanbul.library;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// Default backend: full scan via the pure BookSearchOperations functions
+public class ScanBookSearch implements BookSearchBackend {
+    private final List<Book> books = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            put(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addAll(List<Book> added) {
+        lock.writeLock().lock();
+        try {
+            added.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> searchByTitle(String title) {
+        lock.readLock().lock();
+        try {
+            return BookSearchOperations.searchByTitle(books, title);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> searchByAuthor(String author) {
+        lock.readLock().lock();
+        try {
+            return BookSearchOperations.searchByAuthor(books, author);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SearchPage searchByTitle(String title, String cursor, int limit) {
+        return page(title.toLowerCase(), Book::title, cursor, limit);
+    }
+
+    @Override
+    public SearchPage searchByAuthor(String author, String cursor, int limit) {
+        return page(author.toLowerCase(), Book::author, cursor, limit);
+    }
+
+    @Override
+    public List<ScoredBook> searchRanked(String query, int limit) {
+        String term = query.toLowerCase();
+        long[] queryTrigrams = BookRelevance.distinctTrigrams(term);
+        BookRelevance.TopK top = new BookRelevance.TopK(limit);
+        lock.readLock().lock();
+        try {
+            for (int position = 0; position < books.size(); position++) {
+                Book book = books.get(position);
+                top.offer(position, Math.max(
+                    BookRelevance.fieldScore(book.title().toLowerCase(), term, queryTrigrams),
+                    BookRelevance.fieldScore(book.author().toLowerCase(), term, queryTrigrams)));
+            }
+            return top.drain().stream()
+                .map(hit -> new ScoredBook(books.get(hit.position()), hit.score()))
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Book book) {
+        Integer existing = positions.putIfAbsent(book.bookId(), books.size());
+        if (existing == null) {
+            books.add(book);
+        } else {
+            books.set(existing, book);
+        }
+    }
+
+    private SearchPage page(String term, Function<Book, String> field, String cursor, int limit) {
+        SearchPage.requireValidLimit(limit);
+        int from = SearchPage.positionOf(cursor);
+        lock.readLock().lock();
+        try {
+            List<Book> matches = new ArrayList<>(Math.min(limit, 64));
+            for (int position = from; position < books.size(); position++) {
+                Book book = books.get(position);
+                if (field.apply(book).toLowerCase().contains(term)) {
+                    if (matches.size() == limit) {
+                        return new SearchPage(matches, Optional.of(SearchPage.cursorAt(position)));
+                    }
+                    matches.add(book);
+                }
+            }
+            return new SearchPage(matches, Optional.empty());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package jug.istanbul.library;
+
+// DO: Simple immutable data - a ranked search hit (higher score = more relevant)
+public record ScoredBook(Book book, double score) {}
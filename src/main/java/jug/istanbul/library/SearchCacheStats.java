@@ -0,0 +1,12 @@
+package jug.istanbul.library;
+
+// DO: Simple immutable data - search result cache counters, for sizing the cache.
+// stale counts lookups that found an entry from an older catalog version (also a miss).
+// cachedBooks is the total length of the cached results, bounded by maxCachedBooks.
+public record SearchCacheStats(long hits, long misses, long stale, long evictions, int size, int maxEntries,
+                               int cachedBooks, int maxCachedBooks) {
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
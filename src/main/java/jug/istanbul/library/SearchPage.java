@@ -0,0 +1,42 @@
+package jug.istanbul.library;
+
+import java.util.List;
+import java.util.Optional;
+
+// DO: Simple immutable data - one page of search results.
+// nextCursor is an opaque continuation token, present only when more matches exist.
+public record SearchPage(List<Book> books, Optional<String> nextCursor) {
+    public SearchPage {
+        books = List.copyOf(books);
+    }
+    
+    public boolean hasMore() {
+        return nextCursor.isPresent();
+    }
+    
+    // Cursors encode the catalog position to resume from
+    static String cursorAt(int position) {
+        return Integer.toString(position, 36);
+    }
+    
+    static int positionOf(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            int position = Integer.parseInt(cursor, 36);
+            if (position < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return position;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    static void requireValidLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package jug.istanbul.library;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Opaque session tokens -> userId, with a fixed time-to-live.
+// Resolving a token is a lock-free ConcurrentHashMap read. Sessions store the userId rather
+// than the User record, so the caller always sees the current record (blocks apply at once).
+public class SessionStore {
+    private static final int TOKEN_BYTES = 32;
+    private static final int SWEEP_EVERY_OPENS = 1024;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicInteger opensSinceSweep = new AtomicInteger();
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    public SessionStore(Duration timeToLive) {
+        this(timeToLive, Clock.systemUTC());
+    }
+
+    public SessionStore(Duration timeToLive, Clock clock) {
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Session time-to-live must be positive");
+        }
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    // Issue a new token for an authenticated user
+    public String open(String userId) {
+        // Amortized eviction of abandoned sessions
+        if (opensSinceSweep.incrementAndGet() >= SWEEP_EVERY_OPENS) {
+            opensSinceSweep.set(0);
+            evictExpired();
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userId, clock.instant().plus(timeToLive)));
+        return token;
+    }
+
+    // userId behind a live token; expired tokens are evicted on sight
+    public Optional<String> resolve(String token) {
+        Session session = sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (!clock.instant().isBefore(session.expiresAt())) {
+            sessions.remove(token, session);
+            return Optional.empty();
+        }
+        return Optional.of(session.userId());
+    }
+
+    public void close(String token) {
+        sessions.remove(token);
+    }
+
+    public int evictExpired() {
+        Instant now = clock.instant();
+        int before = sessions.size();
+        sessions.values().removeIf(session -> !now.isBefore(session.expiresAt()));
+        return before - sessions.size();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private record Session(String userId, Instant expiresAt) {}
+}
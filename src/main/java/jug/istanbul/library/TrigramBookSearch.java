@@ -0,0 +1,484 @@
+package jug.istanbul.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted trigram index over normalized titles and authors.
+// Every substring of length >= 3 contains all trigrams of the query, so intersecting the
+// posting lists of the query trigrams yields a candidate superset; candidates are then
+// verified with the same lowercase + contains test BookSearchOperations uses.
+// Queries of one or two chars have no trigram, so every distinct 1- and 2-char substring of a
+// field gets its own postings too: a short query reads exactly the docs containing it.
+// Searches share a read lock; adding a book takes the write lock.
+public class TrigramBookSearch implements BookSearchBackend {
+    private final List<Book> books = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final FieldIndex titles = new FieldIndex();
+    private final FieldIndex authors = new FieldIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            index(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Books new to the index are indexed together, field by field (see FieldIndex.indexAll);
+    // books it already has are re-indexed one by one, as add() does
+    @Override
+    public void addAll(List<Book> added) {
+        lock.writeLock().lock();
+        try {
+            int firstNew = books.size();
+            List<Book> known = new ArrayList<>();
+            for (Book book : added) {
+                Integer existing = docIds.get(book.bookId());
+                if (existing == null) {
+                    docIds.put(book.bookId(), books.size());
+                    books.add(book);
+                } else if (existing >= firstNew) {
+                    books.set(existing, book); // repeated within the batch: the later one wins
+                } else {
+                    known.add(book);
+                }
+            }
+            List<Book> fresh = books.subList(firstNew, books.size());
+            titles.indexAll(firstNew, fresh.stream().map(book -> book.title().toLowerCase()).toList());
+            authors.indexAll(firstNew, fresh.stream().map(book -> book.author().toLowerCase()).toList());
+            known.forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> searchByTitle(String title) {
+        return search(titles, title);
+    }
+
+    @Override
+    public List<Book> searchByAuthor(String author) {
+        return search(authors, author);
+    }
+
+    @Override
+    public SearchPage searchByTitle(String title, String cursor, int limit) {
+        return page(titles, title, cursor, limit);
+    }
+
+    @Override
+    public SearchPage searchByAuthor(String author, String cursor, int limit) {
+        return page(authors, author, cursor, limit);
+    }
+
+    // Scores only documents sharing a trigram with the query, accumulating into small hash
+    // tables sized to the postings read (never to the catalog), then keeps the top `limit`
+    // in a bounded heap
+    @Override
+    public List<ScoredBook> searchRanked(String query, int limit) {
+        String term = query.toLowerCase();
+        BookRelevance.TopK top = new BookRelevance.TopK(limit);
+        lock.readLock().lock();
+        try {
+            if (term.isEmpty()) {
+                // Every book contains the empty term and scores the same, so the earliest win
+                for (int docId = 0; docId < Math.min(limit, books.size()); docId++) {
+                    top.offer(docId, Math.max(
+                        BookRelevance.shortQueryScore(titles.normalized.get(docId), term),
+                        BookRelevance.shortQueryScore(authors.normalized.get(docId), term)));
+                }
+            } else {
+                long[] queryTrigrams = BookRelevance.distinctTrigrams(term);
+                DocScores titleScores = term.length() < 3 ? titles.shortScore(term) : titles.score(term, queryTrigrams);
+                DocScores authorScores = term.length() < 3 ? authors.shortScore(term) : authors.score(term, queryTrigrams);
+                DocScores best = new DocScores(titleScores.size() + authorScores.size());
+                titleScores.forEach(best::max);
+                authorScores.forEach(best::max);
+                best.forEach(top::offer);
+            }
+            return top.drain().stream()
+                .map(hit -> new ScoredBook(books.get(hit.position()), hit.score()))
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Book> search(FieldIndex field, String query) {
+        String term = query.toLowerCase();
+        lock.readLock().lock();
+        try {
+            return toBooks(field.matches(term, 0, Integer.MAX_VALUE));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private SearchPage page(FieldIndex field, String query, String cursor, int limit) {
+        SearchPage.requireValidLimit(limit);
+        int from = SearchPage.positionOf(cursor);
+        String term = query.toLowerCase();
+        lock.readLock().lock();
+        try {
+            // One look-ahead match tells whether another page exists
+            IntList docIds = field.matches(term, from, limit + 1);
+            if (docIds.size() <= limit) {
+                return new SearchPage(toBooks(docIds), Optional.empty());
+            }
+            List<Book> page = new ArrayList<>(limit);
+            for (int i = 0; i < limit; i++) {
+                page.add(books.get(docIds.get(i)));
+            }
+            return new SearchPage(page, Optional.of(SearchPage.cursorAt(docIds.get(limit))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Book> toBooks(IntList docIds) {
+        List<Book> result = new ArrayList<>(docIds.size());
+        for (int i = 0; i < docIds.size(); i++) {
+            result.add(books.get(docIds.get(i)));
+        }
+        return result;
+    }
+
+    private void index(Book book) {
+        Integer existing = docIds.get(book.bookId());
+        int docId;
+        if (existing != null) {
+            docId = existing;
+            books.set(docId, book);
+        } else {
+            docId = books.size();
+            books.add(book);
+            docIds.put(book.bookId(), docId);
+        }
+        titles.index(docId, book.title().toLowerCase());
+        authors.index(docId, book.author().toLowerCase());
+    }
+
+    // docId -> score, open addressing over primitive arrays. Sized up front to the number of
+    // distinct docs it can receive, so a query allocates in proportion to the postings it
+    // reads, whatever the catalog size and whatever thread it runs on.
+    private static final class DocScores {
+        private static final int EMPTY = -1;
+
+        private final int[] docIds;
+        private final double[] scores;
+        private final int shift;
+        private int size;
+
+        DocScores(int maxDocs) {
+            int capacity = Integer.highestOneBit(Math.max(4, maxDocs * 2 - 1)) << 1;
+            shift = 32 - Integer.numberOfTrailingZeros(capacity);
+            docIds = new int[capacity];
+            scores = new double[capacity];
+            Arrays.fill(docIds, EMPTY);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(int docId, double delta) {
+            int slot = slotOf(docId);
+            scores[slot] += delta;
+        }
+
+        void max(int docId, double score) {
+            int slot = slotOf(docId);
+            scores[slot] = Math.max(scores[slot], score);
+        }
+
+        void forEach(Visitor visitor) {
+            for (int slot = 0; slot < docIds.length; slot++) {
+                if (docIds[slot] != EMPTY) {
+                    visitor.visit(docIds[slot], scores[slot]);
+                }
+            }
+        }
+
+        // Slot of docId, claiming an empty one on first sight
+        private int slotOf(int docId) {
+            int mask = docIds.length - 1;
+            int slot = (docId * 0x9E3779B9) >>> shift; // Fibonacci hashing spreads sequential ids
+            while (docIds[slot] != docId) {
+                if (docIds[slot] == EMPTY) {
+                    docIds[slot] = docId;
+                    size++;
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        interface Visitor {
+            void visit(int docId, double score);
+        }
+    }
+
+    // Gram key -> dense slot number (0, 1, 2... in order of first sight), open addressing over
+    // primitive arrays; lets indexAll count postings without boxing a key per posting
+    private static final class GramSlots {
+        private long[] keys = new long[1024];
+        private int[] slots = new int[1024];    // slot + 1, 0 for an empty cell
+        private long[] keyOfSlot = new long[512];
+        private int size;
+
+        int slotOf(long key) {
+            int mask = keys.length - 1;
+            int cell = hash(key) & mask;
+            while (slots[cell] != 0) {
+                if (keys[cell] == key) {
+                    return slots[cell] - 1;
+                }
+                cell = (cell + 1) & mask;
+            }
+            if (size == keyOfSlot.length) {
+                keyOfSlot = Arrays.copyOf(keyOfSlot, size * 2);
+            }
+            keyOfSlot[size] = key;
+            keys[cell] = key;
+            slots[cell] = ++size;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        long key(int slot) {
+            return keyOfSlot[slot];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[oldKeys.length * 2];
+            slots = new int[oldSlots.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldSlots[i] != 0) {
+                    int cell = hash(oldKeys[i]) & mask;
+                    while (slots[cell] != 0) {
+                        cell = (cell + 1) & mask;
+                    }
+                    keys[cell] = oldKeys[i];
+                    slots[cell] = oldSlots[i];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // Three UTF-16 chars packed into one primitive key
+    static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    // One or two UTF-16 chars packed into one primitive key; bit 32 tells the lengths apart
+    static long shortGram(String s, int i, int length) {
+        return length == 1 ? s.charAt(i) : (1L << 32) | ((long) s.charAt(i) << 16) | s.charAt(i + 1);
+    }
+
+    // Every distinct 1- and 2-char substring of a normalized value, sorted
+    static long[] distinctShortGrams(String normalized) {
+        int length = normalized.length();
+        long[] keys = new long[Math.max(0, 2 * length - 1)];
+        for (int i = 0; i < length; i++) {
+            keys[i] = shortGram(normalized, i, 1);
+            if (i + 1 < length) {
+                keys[length + i] = shortGram(normalized, i, 2);
+            }
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    // Postings and normalized values for one searchable field
+    private static final class FieldIndex {
+        private final List<String> normalized = new ArrayList<>();
+        private final IntList trigramCounts = new IntList();
+        private final Map<Long, IntList> postings = new HashMap<>();
+        private final Map<Long, IntList> shortPostings = new HashMap<>();
+
+        void index(int docId, String value) {
+            if (docId == normalized.size()) {
+                normalized.add(value);
+                trigramCounts.add(0);
+            } else {
+                // Re-indexed book: drop its old postings so ranking counts stay exact
+                String previous = normalized.get(docId);
+                for (long key : BookRelevance.distinctTrigrams(previous)) {
+                    postings.get(key).removeSorted(docId);
+                }
+                for (long key : distinctShortGrams(previous)) {
+                    shortPostings.get(key).removeSorted(docId);
+                }
+                normalized.set(docId, value);
+            }
+            long[] keys = BookRelevance.distinctTrigrams(value);
+            trigramCounts.set(docId, keys.length);
+            for (long key : keys) {
+                postings.computeIfAbsent(key, k -> new IntList()).addSorted(docId);
+            }
+            for (long key : distinctShortGrams(value)) {
+                shortPostings.computeIfAbsent(key, k -> new IntList()).addSorted(docId);
+            }
+        }
+
+        // Bulk form of index() for the new docs firstDoc, firstDoc + 1, ...
+        void indexAll(int firstDoc, List<String> values) {
+            long[][] trigramsOfDoc = new long[values.size()][];
+            long[][] shortGramsOfDoc = new long[values.size()][];
+            for (int d = 0; d < values.size(); d++) {
+                trigramsOfDoc[d] = BookRelevance.distinctTrigrams(values.get(d));
+                shortGramsOfDoc[d] = distinctShortGrams(values.get(d));
+                normalized.add(values.get(d));
+                trigramCounts.add(trigramsOfDoc[d].length);
+            }
+            addPostings(postings, firstDoc, trigramsOfDoc);
+            addPostings(shortPostings, firstDoc, shortGramsOfDoc);
+        }
+
+        // Counts the postings of each key first, then fills lists of exactly that size in doc
+        // order (sorted as they go). The map is probed once per distinct key, not once per posting.
+        private static void addPostings(Map<Long, IntList> postings, int firstDoc, long[][] keysOfDoc) {
+            GramSlots slots = new GramSlots();
+            int[][] slotsOfDoc = new int[keysOfDoc.length][];
+            IntList postingCounts = new IntList();
+            for (int d = 0; d < keysOfDoc.length; d++) {
+                long[] keys = keysOfDoc[d];
+                int[] docSlots = slotsOfDoc[d] = new int[keys.length];
+                for (int k = 0; k < keys.length; k++) {
+                    int slot = docSlots[k] = slots.slotOf(keys[k]);
+                    if (slot == postingCounts.size()) {
+                        postingCounts.add(0);
+                    }
+                    postingCounts.set(slot, postingCounts.get(slot) + 1);
+                }
+            }
+            IntList[] lists = new IntList[slots.size()];
+            for (int slot = 0; slot < lists.length; slot++) {
+                int count = postingCounts.get(slot);
+                lists[slot] = postings.computeIfAbsent(slots.key(slot), k -> new IntList(count));
+            }
+            for (int d = 0; d < slotsOfDoc.length; d++) {
+                for (int slot : slotsOfDoc[d]) {
+                    lists[slot].add(firstDoc + d);
+                }
+            }
+        }
+
+        // Field score of every doc sharing at least one trigram with the query
+        DocScores score(String term, long[] queryTrigrams) {
+            IntList[] lists = new IntList[queryTrigrams.length];
+            int postingsRead = 0;
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(queryTrigrams[i]);
+                postingsRead += lists[i] == null ? 0 : lists[i].size();
+            }
+            DocScores shared = new DocScores(postingsRead);
+            for (IntList docs : lists) {
+                for (int d = 0; docs != null && d < docs.size(); d++) {
+                    shared.add(docs.get(d), 1);
+                }
+            }
+            DocScores scores = new DocScores(shared.size());
+            shared.forEach((docId, count) -> scores.max(docId, BookRelevance.score((int) count, queryTrigrams.length,
+                trigramCounts.get(docId), normalized.get(docId).startsWith(term))));
+            return scores;
+        }
+
+        // Short-query score of every doc containing a 1- or 2-char term
+        DocScores shortScore(String term) {
+            IntList docs = shortPostings.get(shortGram(term, 0, term.length()));
+            DocScores scores = new DocScores(docs == null ? 0 : docs.size());
+            for (int d = 0; docs != null && d < docs.size(); d++) {
+                int docId = docs.get(d);
+                scores.max(docId, BookRelevance.shortQueryScore(normalized.get(docId), term));
+            }
+            return scores;
+        }
+
+        // Doc ids >= fromDoc whose value contains term, in order, stopping after maxMatches
+        IntList matches(String term, int fromDoc, int maxMatches) {
+            IntList result = new IntList();
+            if (term.isEmpty()) {
+                // Every value contains the empty term
+                for (int docId = fromDoc; docId < normalized.size() && result.size() < maxMatches; docId++) {
+                    result.add(docId);
+                }
+                return result;
+            }
+            if (term.length() < 3) {
+                // A short term's postings are exactly its matches - nothing to verify
+                IntList docs = shortPostings.get(shortGram(term, 0, term.length()));
+                for (int d = docs == null ? 0 : docs.seek(0, fromDoc); docs != null && d < docs.size()
+                        && result.size() < maxMatches; d++) {
+                    result.add(docs.get(d));
+                }
+                return result;
+            }
+
+            IntList[] lists = new IntList[term.length() - 2];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(trigram(term, i));
+                if (lists[i] == null) {
+                    return result;
+                }
+            }
+            // Drive the intersection from the rarest trigram
+            Arrays.sort(lists, Comparator.comparingInt(IntList::size));
+
+            int[] cursors = new int[lists.length];
+            IntList driver = lists[0];
+            candidates:
+            for (int d = driver.seek(0, fromDoc); d < driver.size() && result.size() < maxMatches; d++) {
+                int docId = driver.get(d);
+                for (int l = 1; l < lists.length; l++) {
+                    if (!advanceTo(lists[l], cursors, l, docId)) {
+                        continue candidates;
+                    }
+                }
+                if (normalized.get(docId).contains(term)) {
+                    result.add(docId);
+                }
+            }
+            return result;
+        }
+
+        // Moves cursor l forward until it reaches docId; true if docId is present
+        private static boolean advanceTo(IntList list, int[] cursors, int l, int docId) {
+            int c = list.seek(cursors[l], docId);
+            cursors[l] = c;
+            return c < list.size() && list.get(c) == docId;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package jug.istanbul.library;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Function;
 
 // DO: Separate behavior - User operations
 public class UserOperations {
@@ -9,19 +10,36 @@ public class UserOperations {
     
     // Authenticate user
     public static Optional<User> authenticate(
-        List<User> users,
-        List<UserCredentials> credentials,
+        Collection<User> users,
+        Collection<UserCredentials> credentials,
         String email,
         String password
     ) {
         return credentials.stream()
-            .filter(cred -> cred.email().equals(email) && cred.password().equals(password))
+            .filter(cred -> cred.email().equals(email) && passwordMatches(cred, password))
             .findFirst()
             .flatMap(cred -> users.stream()
                 .filter(user -> user.email().equals(email))
                 .findFirst());
     }
     
+    // Authenticate against email-keyed lookups - a single probe per side instead of two scans
+    public static Optional<User> authenticate(
+        Function<String, Optional<UserCredentials>> credentialsByEmail,
+        Function<String, Optional<User>> userByEmail,
+        String email,
+        String password
+    ) {
+        return credentialsByEmail.apply(email)
+            .filter(cred -> passwordMatches(cred, password))
+            .flatMap(cred -> userByEmail.apply(email));
+    }
+    
+    // Check a password against stored credentials
+    public static boolean passwordMatches(UserCredentials credentials, String password) {
+        return credentials.password().equals(password);
+    }
+    
     // Check if user is librarian
     public static boolean isLibrarian(User user) {
         return user.role() == UserRole.LIBRARIAN;
@@ -0,0 +1,94 @@
+package jug.istanbul.library.http;
+
+import jug.istanbul.library.Book;
+import jug.istanbul.library.BookCopy;
+import jug.istanbul.library.Hold;
+import jug.istanbul.library.Loan;
+import jug.istanbul.library.LoanOperations;
+import jug.istanbul.library.User;
+
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Minimal JSON encoding for the library records - keeps the HTTP layer dependency-free
+final class Json {
+    private Json() {} // Utility class
+
+    static String book(Book book) {
+        return "{\"bookId\":" + string(book.bookId())
+            + ",\"title\":" + string(book.title())
+            + ",\"author\":" + string(book.author())
+            + ",\"isbn\":" + string(book.isbn()) + "}";
+    }
+
+    static String copy(BookCopy copy) {
+        return "{\"copyId\":" + string(copy.copyId())
+            + ",\"bookId\":" + string(copy.bookId())
+            + ",\"status\":" + string(copy.status().name()) + "}";
+    }
+
+    static String loan(Loan loan) {
+        return "{\"loanId\":" + string(loan.loanId())
+            + ",\"memberId\":" + string(loan.memberId())
+            + ",\"copyId\":" + string(loan.copyId())
+            + ",\"borrowedAt\":" + string(String.valueOf(loan.borrowedAt()))
+            + ",\"dueDate\":" + string(String.valueOf(loan.dueDate()))
+            + ",\"returnedAt\":" + (loan.returnedAt() == null ? "null" : string(loan.returnedAt().toString())) + "}";
+    }
+
+    static String hold(Hold hold) {
+        return "{\"memberId\":" + string(hold.memberId())
+            + ",\"bookId\":" + string(hold.bookId())
+            + ",\"placedAt\":" + string(String.valueOf(hold.placedAt()))
+            + ",\"copyId\":" + (hold.copyId() == null ? "null" : string(hold.copyId()))
+            + ",\"expiresAt\":" + (hold.expiresAt() == null ? "null" : string(hold.expiresAt().toString())) + "}";
+    }
+
+    static String user(User user) {
+        return "{\"userId\":" + string(user.userId())
+            + ",\"name\":" + string(user.name())
+            + ",\"email\":" + string(user.email())
+            + ",\"role\":" + string(user.role().name())
+            + ",\"status\":" + string(user.status().name()) + "}";
+    }
+
+    static String loanInfo(LoanOperations.BookLoanInfo info) {
+        return "{\"book\":" + (info.book() == null ? "null" : book(info.book()))
+            + ",\"copy\":" + copy(info.copy())
+            + ",\"loan\":" + loan(info.loan()) + "}";
+    }
+
+    static <T> String array(Collection<T> values, Function<T, String> encoder) {
+        return values.stream().map(encoder).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    static String field(String name, String value) {
+        return "{" + string(name) + ":" + string(value) + "}";
+    }
+
+    static String string(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,305 @@
+package jug.istanbul.library.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jug.istanbul.library.Book;
+import jug.istanbul.library.BookCopy;
+import jug.istanbul.library.CachingBookSearch;
+import jug.istanbul.library.LibraryService;
+import jug.istanbul.library.Loan;
+import jug.istanbul.library.SearchPage;
+import jug.istanbul.library.TrigramBookSearch;
+import jug.istanbul.library.User;
+import jug.istanbul.library.UserCredentials;
+import jug.istanbul.library.UserOperations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// HTTP/JSON front end for LibraryService on the JDK's built-in server, one virtual thread per request.
+// Authenticated routes take "Authorization: Bearer <token>" from POST /login.
+//
+//   POST /login    email, password      -> {"token": ...}
+//   GET  /books    title | author       -> [book]
+//                  + limit [, cursor]    -> {"books": [book], "nextCursor": ...}
+//   POST /borrow   bookId               -> loan            (member)
+//   POST /hold     bookId               -> hold            (member)
+//   POST /return   copyId               -> loan            (the borrower or a librarian)
+//   POST /block    memberId             -> user            (librarian)
+//   POST /unblock  memberId             -> user            (librarian)
+//   GET  /loans    memberId             -> [bookLoanInfo]  (librarian)
+public class LibraryHttpServer {
+    private static final System.Logger LOG = System.getLogger(LibraryHttpServer.class.getName());
+
+    private final LibraryService library;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LibraryHttpServer(LibraryService library, InetSocketAddress address) throws IOException {
+        this.library = library;
+        // Large backlog so connection bursts from thousands of clients queue instead of failing
+        this.server = HttpServer.create(address, 4096);
+        server.setExecutor(executor);
+        route("/login", "POST", this::login);
+        route("/books", "GET", this::searchBooks);
+        route("/borrow", "POST", this::borrow);
+        route("/hold", "POST", this::hold);
+        route("/return", "POST", this::returnBook);
+        route("/block", "POST", request -> changeMember(request, true));
+        route("/unblock", "POST", request -> changeMember(request, false));
+        route("/loans", "GET", this::listLoans);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Request parameters plus the resolved session user, if any
+    private record Request(Map<String, String> params, Optional<User> user) {
+        String require(String name) {
+            String value = params.get(name);
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Missing parameter: " + name);
+            }
+            return value;
+        }
+
+        User requireUser() {
+            return user.orElseThrow(() -> new HttpError(401, "Invalid or expired session"));
+        }
+
+        User requireLibrarian() {
+            User librarian = requireUser();
+            if (!UserOperations.isLibrarian(librarian)) {
+                throw new HttpError(403, "Librarians only");
+            }
+            return librarian;
+        }
+    }
+
+    private record Response(int status, String body) {
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+    }
+
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Route {
+        Response handle(Request request);
+    }
+
+    private Response login(Request request) {
+        return library.openSession(request.require("email"), request.require("password"))
+            .map(token -> Response.ok(Json.field("token", token)))
+            .orElseThrow(() -> new HttpError(401, "Invalid credentials"));
+    }
+
+    private Response searchBooks(Request request) {
+        if (request.params().containsKey("limit")) {
+            return searchPage(request);
+        }
+        List<Book> books;
+        if (request.params().containsKey("title")) {
+            books = library.searchBooksByTitle(request.params().get("title"));
+        } else if (request.params().containsKey("author")) {
+            books = library.searchBooksByAuthor(request.params().get("author"));
+        } else {
+            throw new IllegalArgumentException("Missing parameter: title or author");
+        }
+        return Response.ok(Json.array(books, Json::book));
+    }
+
+    private Response searchPage(Request request) {
+        int limit = parseLimit(request.require("limit"));
+        String cursor = request.params().get("cursor");
+        SearchPage page;
+        if (request.params().containsKey("title")) {
+            page = library.searchBooksByTitle(request.params().get("title"), cursor, limit);
+        } else if (request.params().containsKey("author")) {
+            page = library.searchBooksByAuthor(request.params().get("author"), cursor, limit);
+        } else {
+            throw new IllegalArgumentException("Missing parameter: title or author");
+        }
+        return Response.ok("{\"books\":" + Json.array(page.books(), Json::book)
+            + ",\"nextCursor\":" + Json.string(page.nextCursor().orElse(null)) + "}");
+    }
+
+    private static int parseLimit(String limit) {
+        try {
+            return Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit");
+        }
+    }
+
+    private Response borrow(Request request) {
+        User member = request.requireUser();
+        return library.borrowBook(member, request.require("bookId"))
+            .map(loan -> Response.ok(Json.loan(loan)))
+            .orElseThrow(() -> new HttpError(409, "Book cannot be borrowed"));
+    }
+
+    // Clients queue here instead of retrying /borrow; a ready hold is claimed through /borrow
+    private Response hold(Request request) {
+        User member = request.requireUser();
+        return library.placeHold(member, request.require("bookId"))
+            .map(hold -> Response.ok(Json.hold(hold)))
+            .orElseThrow(() -> new HttpError(409, "Book cannot be held"));
+    }
+
+    // Librarians return any copy; members only their own loans (checked atomically with the return)
+    private Response returnBook(Request request) {
+        User user = request.requireUser();
+        String copyId = request.require("copyId");
+        Optional<Loan> closed = UserOperations.isLibrarian(user)
+            ? library.returnBook(copyId)
+            : library.returnBook(user, copyId);
+        return closed
+            .map(loan -> Response.ok(Json.loan(loan)))
+            .orElseThrow(() -> library.findActiveLoan(copyId).isPresent()
+                ? new HttpError(403, "Book copy is on loan to another member")
+                : new HttpError(404, "Book copy is not on loan"));
+    }
+
+    private Response changeMember(Request request, boolean block) {
+        User librarian = request.requireLibrarian();
+        String memberId = request.require("memberId");
+        User member = block ? library.blockMember(librarian, memberId) : library.unblockMember(librarian, memberId);
+        return Response.ok(Json.user(member));
+    }
+
+    private Response listLoans(Request request) {
+        User librarian = request.requireLibrarian();
+        return Response.ok(Json.array(library.listBorrowedBooks(librarian, request.require("memberId")), Json::loanInfo));
+    }
+
+    private void route(String path, String method, Route route) {
+        server.createContext(path, exchange -> {
+            Response response;
+            try {
+                if (!method.equals(exchange.getRequestMethod())) {
+                    throw new HttpError(405, "Use " + method);
+                }
+                Map<String, String> params = parseForm(exchange.getRequestURI().getRawQuery());
+                params.putAll(parseForm(readBody(exchange.getRequestBody())));
+                response = route.handle(new Request(params, sessionUser(exchange)));
+            } catch (HttpError e) {
+                response = new Response(e.status, Json.field("error", e.getMessage()));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                response = new Response(400, Json.field("error", e.getMessage()));
+            } catch (RuntimeException e) {
+                // The message may carry internals; it goes to the log, the client gets a generic body
+                LOG.log(System.Logger.Level.ERROR, exchange.getRequestMethod() + " " + path + " failed", e);
+                response = new Response(500, Json.field("error", "Internal server error"));
+            }
+            send(exchange, response);
+        });
+    }
+
+    private Optional<User> sessionUser(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return Optional.empty();
+        }
+        return library.resolveSession(authorization.substring("Bearer ".length()).trim());
+    }
+
+    private static String readBody(InputStream body) throws IOException {
+        try (body) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // application/x-www-form-urlencoded, also used for query strings
+    static Map<String, String> parseForm(String encoded) {
+        Map<String, String> params = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return params;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Demo catalog: one librarian, `members` members, `books` books with `copies` copies each
+    public static LibraryService demoLibrary(int members, int books, int copies) {
+        List<User> users = new ArrayList<>();
+        List<UserCredentials> credentials = new ArrayList<>();
+        users.add(User.createLibrarian("L0", "Librarian", "librarian@library.com"));
+        credentials.add(new UserCredentials("librarian@library.com", "password123"));
+        for (int m = 0; m < members; m++) {
+            users.add(User.createMember("M" + m, "Member " + m, "member" + m + "@library.com"));
+            credentials.add(new UserCredentials("member" + m + "@library.com", "password123"));
+        }
+        List<Book> catalog = new ArrayList<>();
+        List<BookCopy> bookCopies = new ArrayList<>();
+        for (int b = 0; b < books; b++) {
+            catalog.add(new Book("B" + b, "Title " + b, "Author " + (b % 100), null));
+            for (int c = 0; c < copies; c++) {
+                bookCopies.add(BookCopy.create("B" + b + "-C" + c, "B" + b));
+            }
+        }
+        return new LibraryService(users, credentials, catalog, bookCopies, List.<Loan>of(),
+            new CachingBookSearch(new TrigramBookSearch(), CachingBookSearch.DEFAULT_MAX_ENTRIES));
+    }
+
+    // Small JSON responses otherwise stall ~40ms on Nagle + delayed ACK. A JVM-wide setting, so
+    // launchers call it (or pass -Dsun.net.httpserver.nodelay=true) before the first server is
+    // created; an explicit -D setting wins.
+    static void preferNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        preferNoDelay();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        LibraryHttpServer server = new LibraryHttpServer(demoLibrary(1_000, 10_000, 5), new InetSocketAddress(port));
+        server.start();
+        System.out.println("Library HTTP server listening on port " + server.port());
+    }
+}
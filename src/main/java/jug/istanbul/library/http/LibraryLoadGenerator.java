@@ -0,0 +1,192 @@
+package jug.istanbul.library.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Closed-loop load generator: N virtual-thread clients each log in once, then loop
+// search -> borrow -> return against the HTTP front end and record per-request latency.
+//
+// Usage: LibraryLoadGenerator [clients] [seconds] [baseUrl]
+// Without a baseUrl an in-process LibraryHttpServer with a demo catalog is started.
+public class LibraryLoadGenerator {
+    private static final int BOOKS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        LibraryHttpServer localServer = null;
+        String baseUrl;
+        if (args.length > 2) {
+            baseUrl = args[2];
+        } else {
+            LibraryHttpServer.preferNoDelay();
+            localServer = new LibraryHttpServer(
+                LibraryHttpServer.demoLibrary(clients, BOOKS, 5), new InetSocketAddress("127.0.0.1", 0));
+            localServer.start();
+            baseUrl = "http://127.0.0.1:" + localServer.port();
+        }
+
+        try {
+            Report report = run(baseUrl, clients, seconds);
+            System.out.println(report);
+        } finally {
+            if (localServer != null) {
+                localServer.stop();
+            }
+        }
+    }
+
+    // DO: Simple immutable data - load test outcome
+    public record Report(int clients, long requests, long errors, double seconds,
+                         double p50Millis, double p99Millis, double p999Millis) {
+        public double throughput() {
+            return requests / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "clients=%d requests=%d errors=%d throughput=%.0f req/s p50=%.2fms p99=%.2fms p999=%.2fms",
+                clients, requests, errors, throughput(), p50Millis, p99Millis, p999Millis);
+        }
+    }
+
+    public static Report run(String baseUrl, int clients, int seconds) throws Exception {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient http = HttpClient.newBuilder().executor(executor).build();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+
+        List<Future<Samples>> futures = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            int member = c;
+            futures.add(executor.submit(() -> runClient(http, baseUrl, member, deadline)));
+        }
+        Samples all = new Samples();
+        long errors = 0;
+        for (Future<Samples> future : futures) {
+            Samples samples = future.get();
+            all.addAll(samples);
+            errors += samples.errors;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        long[] latencies = all.sorted();
+        return new Report(clients, latencies.length, errors, elapsed,
+            percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+    }
+
+    private static Samples runClient(HttpClient http, String baseUrl, int member, long deadline) {
+        Samples samples = new Samples();
+        String token = null;
+        while (token == null && System.nanoTime() < deadline) {
+            String body = samples.send(http, post(baseUrl + "/login", null,
+                "email=member" + member + "@library.com&password=password123"));
+            token = field(body, "token");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            samples.send(http, HttpRequest.newBuilder(URI.create(baseUrl + "/books?title="
+                + URLEncoder.encode("Title " + random.nextInt(BOOKS), StandardCharsets.UTF_8))).GET().build());
+            String loan = samples.send(http, post(baseUrl + "/borrow", token, "bookId=B" + random.nextInt(BOOKS)));
+            String copyId = field(loan, "copyId");
+            if (copyId != null) {
+                samples.send(http, post(baseUrl + "/return", token, "copyId=" + copyId));
+            }
+        }
+        return samples;
+    }
+
+    private static HttpRequest post(String url, String token, String form) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request.build();
+    }
+
+    // Value of a top-level string field in our own flat JSON responses
+    private static String field(String json, String name) {
+        if (json == null) {
+            return null;
+        }
+        String key = "\"" + name + "\":\"";
+        int start = json.indexOf(key);
+        if (start < 0) {
+            return null;
+        }
+        start += key.length();
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // Latencies in nanoseconds for one client (expected 2xx/409/404 count as completed requests)
+    private static final class Samples {
+        private long[] nanos = new long[256];
+        private int size;
+        private long errors;
+
+        String send(HttpClient http, HttpRequest request) {
+            long begin = System.nanoTime();
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                record(System.nanoTime() - begin);
+                if (response.statusCode() >= 500 || response.statusCode() == 401) {
+                    errors++;
+                    return null;
+                }
+                return response.statusCode() == 200 ? response.body() : null;
+            } catch (IOException e) {
+                errors++;
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors++;
+                return null;
+            }
+        }
+
+        void record(long latency) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latency;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                record(other.nanos[i]);
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
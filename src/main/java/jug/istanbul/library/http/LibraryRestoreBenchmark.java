@@ -0,0 +1,46 @@
+package jug.istanbul.library.http;
+
+import jug.istanbul.library.LibraryPolicy;
+import jug.istanbul.library.LibraryService;
+import jug.istanbul.library.LibrarySnapshotFile;
+import jug.istanbul.library.TrigramBookSearch;
+import jug.istanbul.library.User;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Restart benchmark: saves a demo library (with a loan on every third book) to a snapshot
+// file, then times reading the file alone against a full LibraryService.restore - store,
+// first version, trigram index and autocomplete trie included. The gap between the two is
+// what restore adds on top of the I/O.
+//
+// Usage: LibraryRestoreBenchmark [books] [rounds]
+public class LibraryRestoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        int members = Math.max(1, books / 5);
+        LibraryService library = LibraryHttpServer.demoLibrary(members, books, 3);
+        for (int b = 0; b < books; b += 3) {
+            int m = (b / 3) % members;
+            library.borrowBook(User.createMember("M" + m, "Member " + m, "member" + m + "@library.com"), "B" + b);
+        }
+        Path file = Files.createTempFile("library", ".snapshot");
+        try {
+            library.saveSnapshot(file);
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                LibrarySnapshotFile.read(file);
+                long read = System.nanoTime();
+                LibraryService.restore(file, new TrigramBookSearch(), LibraryPolicy.DEFAULT);
+                long restored = System.nanoTime();
+                System.out.printf("books=%d read=%dms restore=%dms%n",
+                    books, (read - start) / 1_000_000, (restored - read) / 1_000_000);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
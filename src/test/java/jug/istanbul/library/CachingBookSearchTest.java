@@ -0,0 +1,148 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Caching Book Search Tests")
+class CachingBookSearchTest {
+
+    private final Book cleanCode = new Book("B1", "Clean Code", "Robert Martin", null);
+    private final Book cleanArchitecture = new Book("B2", "Clean Architecture", "Robert Martin", null);
+
+    @Test
+    @DisplayName("Should serve repeated queries from the cache, case-insensitively")
+    void shouldCountHitsAndMisses() {
+        // Given
+        CachingBookSearch search = new CachingBookSearch(new ScanBookSearch(), 10);
+        search.add(cleanCode);
+
+        // When
+        List<Book> first = search.searchByTitle("clean");
+        List<Book> second = search.searchByTitle("CLEAN");
+        search.searchByAuthor("clean");
+
+        // Then
+        assertEquals(List.of(cleanCode), first);
+        assertSame(first, second);
+        assertEquals(new SearchCacheStats(1, 2, 0, 0, 2, 10, 1, CachingBookSearch.DEFAULT_MAX_CACHED_BOOKS), search.stats());
+        assertEquals(1.0 / 3, search.stats().hitRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should invalidate every entry when a book is added or changed")
+    void shouldInvalidateOnCatalogChange() {
+        // Given
+        CachingBookSearch search = new CachingBookSearch(new TrigramBookSearch(), 10);
+        search.add(cleanCode);
+        search.searchByTitle("clean");
+
+        // When & Then
+        search.add(cleanArchitecture);
+        assertEquals(2, search.catalogVersion());
+        assertEquals(List.of(cleanCode, cleanArchitecture), search.searchByTitle("clean"));
+        search.add(new Book("B1", "Refactoring", "Martin Fowler", null));
+        assertEquals(List.of(cleanArchitecture), search.searchByTitle("clean"));
+        assertEquals(List.of(cleanArchitecture), search.searchByTitle("clean"));
+        SearchCacheStats stats = search.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(3, stats.misses());
+        assertEquals(2, stats.stale());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used query once full")
+    void shouldEvictLeastRecentlyUsed() {
+        // Given
+        CachingBookSearch search = new CachingBookSearch(new ScanBookSearch(), 2);
+        search.add(cleanCode);
+        search.searchByTitle("clean");
+        search.searchByTitle("code");
+
+        // When
+        search.searchByTitle("clean"); // hit: "code" is now least recently used
+        search.searchByTitle("martin");
+        search.searchByTitle("clean");
+        search.searchByTitle("code");
+
+        // Then
+        SearchCacheStats stats = search.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(4, stats.misses());
+        assertEquals(2, stats.evictions());
+        assertEquals(2, stats.size());
+        assertThrows(IllegalArgumentException.class, () -> new CachingBookSearch(new ScanBookSearch(), 0));
+        assertThrows(IllegalArgumentException.class, () -> new CachingBookSearch(new ScanBookSearch(), 2, 0));
+    }
+
+    @Test
+    @DisplayName("Should bound the books held across all entries and skip oversized results")
+    void shouldBoundCachedBooks() {
+        // Given - room for ten entries but only three books
+        CachingBookSearch search = new CachingBookSearch(new ScanBookSearch(), 10, 3);
+        search.add(cleanCode);
+        search.add(cleanArchitecture);
+        search.add(new Book("B3", "Code Complete", "Steve McConnell", null));
+        search.add(new Book("B4", "Refactoring", "Martin Fowler", null));
+        search.searchByTitle("clean");
+
+        // When
+        search.searchByTitle("code"); // two more books: "clean" has to go
+        search.searchByTitle("code");
+        List<Book> oversized = search.searchByTitle("e"); // four books on its own: never cached
+
+        // Then
+        assertEquals(4, oversized.size());
+        assertEquals(new SearchCacheStats(1, 3, 0, 1, 1, 10, 2, 3), search.stats());
+        search.searchByTitle("e");
+        assertEquals(4, search.stats().misses(), "Oversized result recomputed");
+    }
+
+    @Test
+    @DisplayName("Should keep every bound and return correct results under concurrent searches")
+    void shouldSearchConcurrently() throws Exception {
+        // Given - large enough for several segments
+        CachingBookSearch search = new CachingBookSearch(new TrigramBookSearch(), 1_024, 2_000);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            books.add(new Book("B" + i, "Title " + i, "Author " + i % 100, null));
+        }
+        search.addAll(books);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            results.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 5_000; i++) {
+                    String query = "title " + random.nextInt(3_000);
+                    if (!search.searchByTitle(query).equals(BookSearchOperations.searchByTitle(books, query))) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+
+        // Then
+        SearchCacheStats stats = search.stats();
+        assertEquals(40_000, stats.hits() + stats.misses());
+        assertTrue(stats.hits() > 0);
+        assertTrue(stats.size() <= 1_024);
+        assertTrue(stats.cachedBooks() <= 2_000);
+    }
+}
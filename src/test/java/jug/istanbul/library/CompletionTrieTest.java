@@ -0,0 +1,99 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Completion Trie Tests")
+class CompletionTrieTest {
+
+    @Test
+    @DisplayName("Should split edges on insert and fold them back together on remove")
+    void shouldSplitAndMergeEdges() {
+        // Given
+        CompletionTrie trie = new CompletionTrie();
+        trie.add("Cart");
+        int oneKey = trie.nodeCount();
+
+        // When
+        trie.add("Car");   // splits "cart" into "car" + "t"
+        trie.add("Card");  // "car" gains a second child
+        trie.add("Card");
+
+        // Then
+        assertEquals(2, oneKey, "Root plus one compressed edge");
+        assertEquals(List.of("Card", "Cart", "Car"), trie.complete("ca", 5));
+        assertEquals(List.of("Card"), trie.complete("card", 5), "Prefix ends on a node");
+        assertEquals(List.of("Cart"), trie.complete("cart", 5));
+        assertTrue(trie.complete("cars", 5).isEmpty());
+
+        // When - removing everything leaves only the root
+        trie.remove("Car");
+        trie.remove("Card");
+        trie.remove("Card");
+        assertEquals(List.of("Cart"), trie.complete("c", 5));
+        assertEquals(oneKey, trie.nodeCount(), "Emptied branches are reclaimed and merged");
+        trie.remove("Cart");
+        trie.remove("Cart");
+        assertEquals(1, trie.nodeCount());
+        assertTrue(trie.complete("", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should rank like a full sort after random adds and removes")
+    void shouldMatchSortedModel() {
+        // Given - a small alphabet so keys share long prefixes and edges split and merge often
+        Random random = new Random(11);
+        CompletionTrie trie = new CompletionTrie();
+        Map<String, Integer> weights = new LinkedHashMap<>(); // in order of arrival
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int length = 1 + random.nextInt(8); length > 0; length--) {
+                key.append("abc ".charAt(random.nextInt(4)));
+            }
+            keys.add(key.toString());
+        }
+
+        // When & Then
+        for (int step = 0; step < 20_000; step++) {
+            String key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(3) == 0) {
+                trie.remove(key);
+                weights.computeIfPresent(key, (k, w) -> w == 1 ? null : w - 1);
+            } else {
+                trie.add(key);
+                weights.merge(key, 1, Integer::sum);
+            }
+            if (step % 97 == 0) {
+                String prefix = key.substring(0, random.nextInt(key.length() + 1));
+                int limit = 1 + random.nextInt(6);
+                assertEquals(expected(weights, prefix, limit), trie.complete(prefix, limit), prefix);
+            }
+        }
+        for (String key : keys) {
+            while (weights.containsKey(key)) {
+                trie.remove(key);
+                weights.computeIfPresent(key, (k, w) -> w == 1 ? null : w - 1);
+            }
+        }
+        assertEquals(1, trie.nodeCount(), "Only the root is left");
+    }
+
+    private static List<String> expected(Map<String, Integer> weights, String prefix, int limit) {
+        List<String> arrival = new ArrayList<>(weights.keySet());
+        return arrival.stream()
+            .filter(key -> key.startsWith(prefix))
+            .sorted(Comparator.comparing((String key) -> -weights.get(key)).thenComparing(arrival::indexOf))
+            .limit(limit)
+            .toList();
+    }
+}
@@ -0,0 +1,59 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Copy Columns Tests")
+class CopyColumnsTest {
+
+    @Test
+    @DisplayName("Should publish copy changes in versions that never change afterwards")
+    void shouldKeepEarlierVersions() {
+        // Given - codes across several chunks, some of them never published (e.g. loan-only copies)
+        Random random = new Random(5);
+        IdDictionary copyIds = new IdDictionary();
+        IdDictionary bookIds = new IdDictionary();
+        for (int code = 0; code < 10_000; code++) {
+            copyIds.intern("C" + code);
+        }
+        for (int code = 0; code < 50; code++) {
+            bookIds.intern("B" + code);
+        }
+        BookCopyStatus[] statuses = BookCopyStatus.values();
+        Map<Integer, BookCopy> expected = new LinkedHashMap<>(); // in order of first publication
+        CopyColumns columns = CopyColumns.empty(copyIds, bookIds);
+        List<CopyColumns> versions = new ArrayList<>();
+        List<List<BookCopy>> expectedVersions = new ArrayList<>();
+
+        // When
+        for (int version = 0; version < 30; version++) {
+            CopyColumns.Editor editor = columns.edit();
+            for (int change = 0; change < 400; change++) {
+                int code = random.nextInt(10_000);
+                BookCopy previous = expected.get(code);
+                String bookId = previous == null ? "B" + code % 50 : previous.bookId();
+                BookCopyStatus status = statuses[random.nextInt(statuses.length)];
+                editor.put(code, bookIds.code(bookId), status);
+                expected.put(code, new BookCopy("C" + code, bookId, status));
+            }
+            columns = editor.freeze();
+            versions.add(columns);
+            expectedVersions.add(List.copyOf(expected.values()));
+        }
+
+        // Then
+        for (int v = 0; v < versions.size(); v++) {
+            assertEquals(expectedVersions.get(v), versions.get(v));
+        }
+        assertTrue(CopyColumns.empty(copyIds, bookIds).isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> versions.get(0).get(400));
+    }
+}
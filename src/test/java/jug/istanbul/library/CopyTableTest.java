@@ -0,0 +1,83 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Copy Table Tests")
+class CopyTableTest {
+
+    @Test
+    @DisplayName("Should keep status bits and per-book counts in step across many books")
+    void shouldTrackAvailability() {
+        // Given - enough rows to span several bitset words, interleaving books
+        CopyTable table = new CopyTable(new IdDictionary(), new IdDictionary());
+        for (int i = 0; i < 300; i++) {
+            table.insert(BookCopy.create("C" + i, "B" + (i % 3)));
+        }
+
+        // When
+        for (int i = 0; i < 300; i += 2) {
+            table.setStatus(table.rowOf("C" + i), BookCopyStatus.BORROWED);
+        }
+        table.setStatus(table.rowOf("C0"), BookCopyStatus.BORROWED); // no-op, already borrowed
+
+        // Then
+        assertEquals(50, table.availableCount("B0"));
+        assertEquals(50, table.availableCount("B1"));
+        assertEquals(0, table.availableCount("UNKNOWN"));
+        assertEquals("C3", table.view(table.firstAvailableRow("B0")).copyId());
+        assertEquals(new BookCopy("C4", "B1", BookCopyStatus.BORROWED), table.copiesById().get("C4"));
+        assertEquals(50, table.available("B2").size());
+        assertTrue(table.available("B2").stream().allMatch(copy -> copy.status() == BookCopyStatus.AVAILABLE));
+        assertEquals(300, table.copies().size());
+        assertEquals(150, table.copies().stream().filter(copy -> copy.status() == BookCopyStatus.BORROWED).count());
+    }
+
+    @Test
+    @DisplayName("Should insert a copy once and leave an existing row untouched")
+    void shouldInsertOnce() {
+        // Given
+        CopyTable table = new CopyTable(new IdDictionary(), new IdDictionary());
+        int row = table.insert(BookCopy.create("C1", "B1"));
+        table.setStatus(row, BookCopyStatus.BORROWED);
+
+        // When
+        int again = table.insert(BookCopy.create("C1", "B1"));
+        int moved = table.insert(BookCopy.create("C1", "B2"));
+
+        // Then
+        assertEquals(-1, again);
+        assertEquals(-1, moved);
+        assertEquals(0, table.availableCount("B1"));
+        assertEquals(0, table.availableCount("B2"));
+        assertEquals(List.of(), table.available("B1"));
+        assertEquals(Map.of("C1", new BookCopy("C1", "B1", BookCopyStatus.BORROWED)), Map.copyOf(table.copiesById()));
+        assertEquals(BookCopyStatus.ON_HOLD, table.status(table.insert(new BookCopy("C2", "B1", BookCopyStatus.ON_HOLD))));
+        assertEquals(-1, table.rowOf("C3"));
+    }
+
+    @Test
+    @DisplayName("Should use shared dictionary codes as rows and skip codes that are not copies")
+    void shouldShareDictionaries() {
+        // Given - a loan interned a copy id before the copy itself was added
+        IdDictionary copyIds = new IdDictionary();
+        IdDictionary bookIds = new IdDictionary();
+        assertEquals(0, copyIds.intern("C-ON-LOAN-ONLY"));
+        CopyTable table = new CopyTable(copyIds, bookIds);
+
+        // When
+        table.insert(BookCopy.create("C1", "B1"));
+
+        // Then
+        assertEquals(copyIds.code("C1"), table.rowOf("C1"));
+        assertEquals(-1, table.rowOf("C-ON-LOAN-ONLY"));
+        assertEquals(List.of(BookCopy.create("C1", "B1")), List.copyOf(table.copies()));
+        assertEquals("B1", bookIds.id(bookIds.code("B1")));
+        assertEquals(IdDictionary.UNKNOWN, bookIds.code("B2"));
+    }
+}
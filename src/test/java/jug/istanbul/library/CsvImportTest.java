@@ -0,0 +1,109 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CSV Import Tests")
+class CsvImportTest {
+
+    @TempDir
+    Path dir;
+
+    private final User librarian = User.createLibrarian("L001", "Alice Admin", "alice@library.com");
+
+    @Test
+    @DisplayName("Should split quoted fields per RFC 4180")
+    void shouldParseFields() {
+        assertEquals(List.of("B1", "Clean Code", "Robert Martin", ""), CsvImport.fields("B1,Clean Code,Robert Martin,"));
+        assertEquals(List.of("B2", "Hello, \"World\"", "X"), CsvImport.fields("B2,\"Hello, \"\"World\"\"\",X"));
+        assertEquals(List.of(""), CsvImport.fields(""));
+        assertThrows(IllegalArgumentException.class, () -> CsvImport.fields("B3,\"open"));
+    }
+
+    @Test
+    @DisplayName("Should import books and copies, reporting bad rows with their line numbers")
+    void shouldReportBadRows() throws IOException {
+        // Given
+        LibraryService library = new LibraryService(List.of(librarian), List.of(), List.of(), List.of(), List.of());
+        Path books = Files.writeString(dir.resolve("books.csv"), """
+            bookId,title,author,isbn
+            B1,Clean Code,Robert Martin,978-0132350884
+            B2,,Nobody,
+            B3,"Refactoring, 2nd Edition",Martin Fowler,
+            B4,Too,Few
+            """);
+        Path copies = Files.writeString(dir.resolve("copies.csv"), "copyId,bookId\r\nC1,B1\r\nC2,B2\r\nC3,B3\r\n");
+
+        // When
+        ImportReport bookReport = library.importBooks(librarian, books);
+        ImportReport copyReport = library.importCopies(librarian, copies);
+
+        // Then
+        assertEquals(new ImportReport(2, 2, List.of(
+            new ImportReport.RowError(3, "Title cannot be empty"),
+            new ImportReport.RowError(5, "Expected 4 fields, found 3"))), bookReport);
+        assertEquals(new ImportReport(2, 1, List.of(new ImportReport.RowError(3, "Book not found: B2"))), copyReport);
+        assertEquals("Refactoring, 2nd Edition", library.searchBooksByAuthor("Fowler").get(0).title());
+        assertTrue(library.findBookByIsbn("0132350882").isPresent());
+        assertEquals(List.of("Refactoring, 2nd Edition"), library.autocomplete("Refac", 5));
+        assertEquals(1, library.countAvailableCopies("B3"));
+        assertThrows(IllegalArgumentException.class,
+            () -> library.importBooks(User.createMember("M001", "Bob", "bob@email.com"), books));
+    }
+
+    @Test
+    @DisplayName("Should report existing copies instead of resetting a lent one")
+    void shouldRejectExistingCopies() throws IOException {
+        // Given - C1 is on loan
+        User member = User.createMember("M001", "Bob Reader", "bob@email.com");
+        LibraryService library = new LibraryService(List.of(librarian, member), List.of(),
+            List.of(new Book("B1", "Clean Code", "Robert Martin", null)),
+            List.of(BookCopy.create("C1", "B1")), List.of());
+        library.borrowBook(member, "B1").orElseThrow();
+        Path copies = Files.writeString(dir.resolve("copies.csv"), "copyId,bookId\nC1,B1\nC2,B1\n");
+
+        // When
+        ImportReport report = library.importCopies(librarian, copies);
+
+        // Then
+        assertEquals(new ImportReport(1, 1, List.of(new ImportReport.RowError(2, "Book copy already exists: C1"))), report);
+        assertEquals(List.of("C2"), library.findAvailableCopies("B1").stream().map(BookCopy::copyId).toList());
+        assertEquals(1, library.getActiveLoans("M001").size());
+    }
+
+    @Test
+    @DisplayName("Should stream a file spanning many chunks in file order")
+    void shouldImportAcrossChunks() throws IOException {
+        // Given - several MB, a bad row every 10,000 lines, and a later row replacing an earlier one
+        StringBuilder csv = new StringBuilder("bookId,title,author,isbn\n");
+        int rows = 60_000;
+        for (int i = 0; i < rows; i++) {
+            String title = i % 10_000 == 9_999 ? "" : "Title " + i + " " + "x".repeat(80);
+            csv.append("B").append(i).append(',').append(title).append(",Author ").append(i % 50).append(",\n");
+        }
+        csv.append("B0,Replaced,Author 0,");
+        Path file = Files.writeString(dir.resolve("catalog.csv"), csv);
+        LibraryService library = new LibraryService(List.of(librarian), List.of(), List.of(), List.of(), List.of());
+
+        // When
+        ImportReport report = library.importBooks(librarian, file);
+
+        // Then
+        assertEquals(rows - 6 + 1, report.imported());
+        assertEquals(6, report.rejected());
+        assertEquals(List.of(10_001L, 20_001L, 30_001L, 40_001L, 50_001L, 60_001L),
+            report.errors().stream().map(ImportReport.RowError::line).toList());
+        assertEquals(rows - 6, library.getBooks().size());
+        assertEquals(Optional.of("Replaced"), library.getBooks().stream()
+            .filter(book -> book.bookId().equals("B0")).map(Book::title).findFirst());
+    }
+}
@@ -0,0 +1,37 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ISBN Tests")
+class IsbnTest {
+
+    @Test
+    @DisplayName("Should normalize ISBN-10 and ISBN-13 in any scanner format to one key")
+    void shouldNormalizeFormats() {
+        long key = 9780132350884L;
+        assertEquals(key, Isbn.key("9780132350884"));
+        assertEquals(key, Isbn.key("978-0-13-235088-4"));
+        assertEquals(key, Isbn.key("0132350882"));
+        assertEquals(key, Isbn.key("0-13-235088-2"));
+        assertEquals(9780804429573L, Isbn.key("0-8044-2957-x"), "X check digit");
+        assertEquals(Optional.of("9780201633610"), Isbn.toIsbn13("0201633612"));
+    }
+
+    @Test
+    @DisplayName("Should reject bad checksums and malformed input")
+    void shouldRejectInvalid() {
+        assertEquals(Isbn.INVALID, Isbn.key("9780132350885"), "ISBN-13 checksum");
+        assertEquals(Isbn.INVALID, Isbn.key("0132350883"), "ISBN-10 checksum");
+        assertEquals(Isbn.INVALID, Isbn.key("1230132350884"), "Prefix must be 978/979");
+        assertFalse(Isbn.isValid("01323508X2"));
+        assertFalse(Isbn.isValid("97801323508840"));
+        assertFalse(Isbn.isValid("ISBN 0132350882"));
+        assertFalse(Isbn.isValid(""));
+        assertFalse(Isbn.isValid(null));
+    }
+}
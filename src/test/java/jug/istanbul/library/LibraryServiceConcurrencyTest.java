@@ -0,0 +1,328 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Library Service Concurrency Tests")
+class LibraryServiceConcurrencyTest {
+
+    private static final int BOOKS = 4;
+    private static final int COPIES_PER_BOOK = 250;
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 100;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Should never lend the same copy twice under concurrent borrows")
+    void shouldLendEachCopyAtMostOnce() throws InterruptedException {
+        // Given
+        List<User> members = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            members.add(User.createMember("M" + t, "Member " + t, "m" + t + "@email.com"));
+        }
+        List<Book> books = new ArrayList<>();
+        List<BookCopy> copies = new ArrayList<>();
+        for (int b = 0; b < BOOKS; b++) {
+            books.add(new Book("B" + b, "Title " + b, "Author " + b, null));
+            for (int c = 0; c < COPIES_PER_BOOK; c++) {
+                copies.add(BookCopy.create("C" + b + "-" + c, "B" + b));
+            }
+        }
+        LibraryService library = new LibraryService(members, List.of(), books, copies, List.of());
+
+        // When - every thread hammers every book until all copies are gone
+        Queue<Loan> loans = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (User member : members) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    library.borrowBook(member, "B" + (i % BOOKS)).ifPresent(loans::add);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then - exactly one loan per copy, and nothing left available
+        Set<String> lentCopies = new HashSet<>();
+        for (Loan loan : loans) {
+            assertTrue(lentCopies.add(loan.copyId()), "Copy lent twice: " + loan.copyId());
+        }
+        assertEquals(BOOKS * COPIES_PER_BOOK, lentCopies.size());
+        for (int b = 0; b < BOOKS; b++) {
+            assertEquals(0, library.countAvailableCopies("B" + b));
+            assertTrue(library.findAvailableCopies("B" + b).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep copies and loans consistent while borrows and returns race")
+    void shouldStayConsistentUnderBorrowAndReturn() throws InterruptedException {
+        // Given - fewer copies than members so borrows and returns contend on the same copies
+        List<User> members = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            members.add(User.createMember("M" + t, "Member " + t, "m" + t + "@email.com"));
+        }
+        List<BookCopy> copies = new ArrayList<>();
+        for (int c = 0; c < 8; c++) {
+            copies.add(BookCopy.create("C" + c, "B0"));
+        }
+        LibraryService library = new LibraryService(
+            members, List.of(), List.of(new Book("B0", "Title", "Author", null)), copies, List.of());
+
+        // When - each thread borrows and returns, sometimes leaving a copy out
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (User member : members) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    library.borrowBook(member, "B0")
+                        .filter(loan -> loan.loanId().hashCode() % 7 != 0)
+                        .ifPresent(loan -> library.returnBook(loan.copyId()));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then - every copy is either available or held by exactly one active loan
+        Set<String> onLoan = new HashSet<>();
+        for (User member : members) {
+            for (Loan loan : library.getActiveLoans(member.userId())) {
+                assertTrue(onLoan.add(loan.copyId()), "Copy on two active loans: " + loan.copyId());
+            }
+        }
+        Set<String> available = new HashSet<>();
+        library.findAvailableCopies("B0").forEach(copy -> available.add(copy.copyId()));
+        assertTrue(available.stream().noneMatch(onLoan::contains));
+        assertEquals(copies.size(), available.size() + onLoan.size());
+    }
+
+    @Test
+    @DisplayName("Should never lend a lent or held copy again when a librarian re-adds or re-imports it")
+    void shouldIgnoreReAddedCopiesUnderLoad() throws Exception {
+        // Given - fewer copies than members, so copies are mostly lent or set aside for holds
+        User librarian = User.createLibrarian("L0", "Librarian", "l0@email.com");
+        List<User> members = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            members.add(User.createMember("M" + t, "Member " + t, "m" + t + "@email.com"));
+        }
+        List<BookCopy> copies = new ArrayList<>();
+        StringBuilder csv = new StringBuilder("copyId,bookId\n");
+        for (int c = 0; c < 8; c++) {
+            copies.add(BookCopy.create("C" + c, "B0"));
+            csv.append("C").append(c).append(",B0\n");
+        }
+        Path file = Files.writeString(dir.resolve("copies.csv"), csv);
+        LibraryService library = new LibraryService(
+            members, List.of(), List.of(new Book("B0", "Title", "Author", null)), copies, List.of());
+
+        // When - members borrow, return and hold while the librarian keeps re-putting every copy
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        List<Future<?>> done = new ArrayList<>();
+        for (User member : members) {
+            done.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    library.borrowBook(member, "B0").ifPresentOrElse(
+                        loan -> library.returnBook(loan.copyId()),
+                        () -> library.placeHold(member, "B0"));
+                }
+                return null;
+            }));
+        }
+        done.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                for (BookCopy copy : copies) {
+                    assertThrows(IllegalArgumentException.class, () -> library.addBookCopy(librarian, copy));
+                }
+                assertEquals(copies.size(), library.importCopies(librarian, file).rejected());
+            }
+            return null;
+        }));
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<?> future : done) {
+            future.get();
+        }
+
+        // Then - every copy is available, on exactly one active loan, or set aside for one hold
+        Set<String> onLoan = new HashSet<>();
+        Set<String> held = new HashSet<>();
+        for (User member : members) {
+            for (Loan loan : library.getActiveLoans(member.userId())) {
+                assertTrue(onLoan.add(loan.copyId()), "Copy on two active loans: " + loan.copyId());
+            }
+            library.getHolds(member.userId()).stream().filter(Hold::isReady)
+                .forEach(hold -> assertTrue(held.add(hold.copyId()), "Copy held twice: " + hold.copyId()));
+        }
+        Set<String> available = new HashSet<>();
+        library.findAvailableCopies("B0").forEach(copy -> available.add(copy.copyId()));
+        assertTrue(available.stream().noneMatch(onLoan::contains));
+        assertTrue(available.stream().noneMatch(held::contains));
+        assertTrue(held.stream().noneMatch(onLoan::contains));
+        assertEquals(copies.size(), available.size() + onLoan.size() + held.size());
+    }
+
+    @Test
+    @DisplayName("Should leave the store, search index and completions agreeing after racing updates of one book")
+    void shouldIndexRacingBookUpdatesAsOneUnit() throws Exception {
+        // Given
+        User librarian = User.createLibrarian("L0", "Librarian", "l0@email.com");
+        LibraryService library = new LibraryService(List.of(librarian), List.of(),
+            List.of(new Book("B0", "Title start", "Author start", null)), List.of(), List.of(),
+            new TrigramBookSearch(), LibraryPolicy.DEFAULT);
+
+        // When - every thread keeps replacing the same book
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            done.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    library.addBook(librarian, new Book("B0", "Title " + thread + " " + i, "Author " + thread, null));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<?> future : done) {
+            future.get();
+        }
+
+        // Then - search and autocomplete find the stored version and no other; completions left
+        // behind by an out-of-order remove/add would pile up here
+        Book stored = library.getBooks().get(0);
+        assertEquals(List.of(stored), library.searchBooksByTitle("Title"));
+        assertEquals(List.of(stored), library.searchBooksByAuthor("Author"));
+        assertEquals(List.of(stored.title()), library.autocomplete("title", THREADS * ATTEMPTS_PER_THREAD));
+    }
+
+    @Test
+    @DisplayName("Should give readers consistent pinned versions while writers proceed")
+    void shouldServeConsistentSnapshotsToReaders() throws Exception {
+        // Given
+        List<User> members = new ArrayList<>();
+        for (int t = 0; t < THREADS / 2; t++) {
+            members.add(User.createMember("M" + t, "Member " + t, "m" + t + "@email.com"));
+        }
+        List<BookCopy> copies = new ArrayList<>();
+        for (int c = 0; c < 8; c++) {
+            copies.add(BookCopy.create("C" + c, "B0"));
+        }
+        LibraryService library = new LibraryService(
+            members, List.of(), List.of(new Book("B0", "Title", "Author", null)), copies, List.of());
+
+        // When - writers borrow and return while readers pin and check versions
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> readers = new ArrayList<>();
+        for (User member : members) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    library.borrowBook(member, "B0").ifPresent(loan -> library.returnBook(loan.copyId()));
+                }
+                return null;
+            });
+            readers.add(executor.submit(() -> {
+                start.await();
+                long lastVersion = -1;
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    LibrarySnapshot snapshot = library.snapshot();
+                    assertTrue(snapshot.version() >= lastVersion, "Versions only move forward");
+                    lastVersion = snapshot.version();
+                    Set<String> borrowed = new HashSet<>();
+                    snapshot.bookCopies().stream()
+                        .filter(copy -> copy.status() == BookCopyStatus.BORROWED)
+                        .forEach(copy -> borrowed.add(copy.copyId()));
+                    Set<String> onLoan = new HashSet<>();
+                    snapshot.loans().stream().filter(Loan::isActive).forEach(loan -> onLoan.add(loan.copyId()));
+                    assertEquals(borrowed, onLoan, "Copy status and loans from the same version");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        assertEquals(8, library.snapshot().bookCopies().size());
+    }
+
+    @Test
+    @DisplayName("Should never let concurrent borrows by one member pass the loan limit")
+    void shouldHoldLoanLimitUnderConcurrentBorrows() throws InterruptedException {
+        // Given - one member, plenty of copies, a limit of 3
+        User member = User.createMember("M0", "Member 0", "m0@email.com");
+        List<BookCopy> copies = new ArrayList<>();
+        for (int c = 0; c < 100; c++) {
+            copies.add(BookCopy.create("C" + c, "B" + (c % BOOKS)));
+        }
+        List<Book> books = new ArrayList<>();
+        for (int b = 0; b < BOOKS; b++) {
+            books.add(new Book("B" + b, "Title " + b, "Author " + b, null));
+        }
+        LibraryService library = new LibraryService(List.of(member), List.of(), books, copies, List.of(),
+            new ScanBookSearch(), LibraryPolicy.DEFAULT.withMaxActiveLoans(3));
+
+        // When - many threads borrow for the same member at once
+        Queue<Loan> loans = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    library.borrowBook(member, "B" + ((thread + i) % BOOKS)).ifPresent(loans::add);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(3, loans.size());
+        assertEquals(new MemberEligibility(3, false, false), library.getEligibility("M0"));
+    }
+}
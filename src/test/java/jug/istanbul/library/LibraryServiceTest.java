@@ -0,0 +1,671 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Library Service Tests")
+class LibraryServiceTest {
+
+    private User librarian;
+    private User member;
+    private LibraryService library;
+
+    @BeforeEach
+    void setUp() {
+        librarian = User.createLibrarian("L001", "Alice Admin", "alice@library.com");
+        member = User.createMember("M001", "Bob Reader", "bob@email.com");
+
+        library = new LibraryService(
+            List.of(librarian, member),
+            List.of(
+                new UserCredentials("alice@library.com", "password123"),
+                new UserCredentials("bob@email.com", "password123")
+            ),
+            List.of(
+                new Book("B001", "Clean Code", "Robert Martin", "978-0132350884"),
+                new Book("B002", "Design Patterns", "Gang of Four", "978-0201633610")
+            ),
+            List.of(
+                BookCopy.create("C001", "B001"),
+                BookCopy.create("C002", "B001"),
+                BookCopy.create("C003", "B002")
+            ),
+            List.of()
+        );
+    }
+
+    @Test
+    @DisplayName("Should authenticate with matching credentials only")
+    void shouldAuthenticate() {
+        assertEquals(Optional.of(member), library.login("bob@email.com", "password123"));
+        assertTrue(library.login("bob@email.com", "wrong-password").isEmpty());
+        assertTrue(library.login("nobody@email.com", "password123").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep the login index in step with registrations and blocks")
+    void shouldLoginThroughEmailIndex() {
+        // Given
+        User carol = User.createMember("M002", "Carol Student", "carol@email.com");
+        library.registerUser(librarian, carol, new UserCredentials("carol@email.com", "secret99"));
+
+        // When
+        library.blockMember(librarian, "M002");
+
+        // Then
+        assertEquals(Optional.of(carol.block()), library.login("carol@email.com", "secret99"));
+        assertThrows(IllegalArgumentException.class, () -> library.registerUser(
+            librarian, User.createMember("M003", "Dan", "dan@email.com"), new UserCredentials("x@email.com", "secret99")));
+    }
+
+    @Test
+    @DisplayName("Should keep each email on one user for both the user and credential indexes")
+    void shouldKeepEmailsUnique() {
+        // Given
+        User impostor = User.createMember("M002", "Eve Other", "bob@email.com");
+        User moved = User.createMember("M001", "Bob Reader", "bob@new-mail.com");
+
+        // When
+        assertThrows(IllegalArgumentException.class, () -> library.registerUser(
+            librarian, impostor, new UserCredentials("bob@email.com", "stolen99")));
+
+        // Then - neither index changed
+        assertEquals(Optional.of(member), library.login("bob@email.com", "password123"));
+        assertTrue(library.login("bob@email.com", "stolen99").isEmpty());
+
+        // When - Bob moves to a new email, which frees the old one for someone else
+        library.registerUser(librarian, moved, new UserCredentials("bob@new-mail.com", "password456"));
+        library.registerUser(librarian, impostor, new UserCredentials("bob@email.com", "secret99"));
+
+        // Then
+        assertEquals(Optional.of(moved), library.login("bob@new-mail.com", "password456"));
+        assertEquals(Optional.of(impostor), library.login("bob@email.com", "secret99"));
+        assertTrue(library.login("bob@email.com", "password123").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should borrow each copy of a book at most once")
+    void shouldBorrowDistinctCopies() {
+        // When
+        Optional<Loan> first = library.borrowBook(member, "B001");
+        Optional<Loan> second = library.borrowBook(member, "B001");
+        Optional<Loan> third = library.borrowBook(member, "B001");
+
+        // Then
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertNotEquals(first.get().copyId(), second.get().copyId());
+        assertTrue(third.isEmpty(), "No copies left");
+    }
+
+    @Test
+    @DisplayName("Should keep available copy counts in step with borrows and new copies")
+    void shouldTrackAvailableCopies() {
+        // Given
+        assertEquals(2, library.countAvailableCopies("B001"));
+
+        // When
+        Loan loan = library.borrowBook(member, "B001").orElseThrow();
+        library.addBookCopy(librarian, BookCopy.create("C004", "B001"));
+
+        // Then
+        assertEquals(2, library.countAvailableCopies("B001"));
+        assertTrue(library.findAvailableCopies("B001").stream()
+            .noneMatch(copy -> copy.copyId().equals(loan.copyId())));
+        assertEquals(0, library.countAvailableCopies("UNKNOWN"));
+        assertThrows(IllegalArgumentException.class,
+            () -> library.addBookCopy(librarian, BookCopy.create("C005", "UNKNOWN")));
+    }
+
+    @Test
+    @DisplayName("Should reject re-adding a lent or held copy instead of putting it back on the shelf")
+    void shouldNotResetLentOrHeldCopies() {
+        // Given - C003, the only copy of B002, is lent; then returned into Carol's hold
+        User carol = User.createMember("M002", "Carol Student", "carol@email.com");
+        User dave = User.createMember("M003", "Dave Reader", "dave@email.com");
+        Loan loan = library.borrowBook(member, "B002").orElseThrow();
+
+        // When
+        assertThrows(IllegalArgumentException.class,
+            () -> library.addBookCopy(librarian, BookCopy.create("C003", "B002")));
+
+        // Then - still lent, so nobody else can borrow it
+        assertTrue(library.borrowBook(dave, "B002").isEmpty());
+        assertEquals(0, library.countAvailableCopies("B002"));
+
+        // When
+        library.placeHold(carol, "B002").orElseThrow();
+        library.returnBook(loan.copyId());
+        assertThrows(IllegalArgumentException.class,
+            () -> library.addBookCopy(librarian, BookCopy.create("C003", "B002")));
+        assertThrows(IllegalArgumentException.class,
+            () -> library.addBookCopy(librarian, BookCopy.create("C003", "B001")));
+
+        // Then - still set aside for Carol
+        assertTrue(library.borrowBook(dave, "B002").isEmpty());
+        assertEquals(0, library.countAvailableCopies("B002"));
+        assertEquals(2, library.countAvailableCopies("B001"));
+        assertEquals("C003", library.borrowBook(carol, "B002").orElseThrow().copyId());
+    }
+
+    @Test
+    @DisplayName("Should borrow a kiosk batch exactly like sequential borrows")
+    void shouldBorrowBatchLikeSequentialCalls() {
+        // When
+        List<BorrowResult> results = library.borrowBooks(member, List.of("B001", "B002", "B001", "B001", "UNKNOWN"));
+
+        // Then
+        assertEquals(List.of(true, true, true, false, false), results.stream().map(BorrowResult::isBorrowed).toList());
+        assertEquals(List.of("B001", "B002", "B001", "B001", "UNKNOWN"), results.stream().map(BorrowResult::bookId).toList());
+        assertNotEquals(results.get(0).loan().get().copyId(), results.get(2).loan().get().copyId());
+        assertEquals(3, library.getActiveLoans("M001").size());
+        assertEquals(0, library.countAvailableCopies("B001"));
+    }
+
+    @Test
+    @DisplayName("Should check eligibility per member in a multi-member batch")
+    void shouldBorrowMultiMemberBatch() {
+        // Given
+        User blocked = library.blockMember(librarian, "M001");
+        User other = User.createMember("M002", "Carol Student", "carol@email.com");
+
+        // When
+        List<BorrowResult> results = library.borrowBooks(List.of(
+            new BorrowRequest(blocked, "B001"),
+            new BorrowRequest(other, "B001"),
+            new BorrowRequest(librarian, "B002"),
+            new BorrowRequest(other, "B002")
+        ));
+
+        // Then
+        assertEquals(List.of(false, true, false, true), results.stream().map(BorrowResult::isBorrowed).toList());
+        assertEquals("M002", results.get(3).loan().get().memberId());
+        assertEquals("M001", results.get(0).memberId());
+    }
+
+    @Test
+    @DisplayName("Should not let a refused batch request hold a loan slot from later ones")
+    void shouldBorrowBatchLikeSequentialCallsUnderLoanLimit() {
+        // Given - two services in the same state, a limit of two loans, one copy per book
+        List<String> bookIds = List.of("UNKNOWN", "B001", "B002", "B001", "B002");
+        LibraryService batched = limitedTo(2);
+        LibraryService sequential = limitedTo(2);
+
+        // When
+        List<Boolean> batch = batched.borrowBooks(member, bookIds).stream().map(BorrowResult::isBorrowed).toList();
+        List<Boolean> oneByOne = bookIds.stream().map(bookId -> sequential.borrowBook(member, bookId).isPresent()).toList();
+
+        // Then
+        assertEquals(List.of(false, true, true, false, false), oneByOne);
+        assertEquals(oneByOne, batch);
+        assertEquals(2, batched.getActiveLoans("M001").size());
+        assertEquals(new MemberEligibility(2, false, false), batched.getEligibility("M001"), "No slot left reserved");
+    }
+
+    private LibraryService limitedTo(int maxActiveLoans) {
+        return new LibraryService(
+            List.of(librarian, member), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null),
+                new Book("B002", "Design Patterns", "Gang of Four", null)),
+            List.of(BookCopy.create("C001", "B001"), BookCopy.create("C002", "B002")),
+            List.of(), new ScanBookSearch(), LibraryPolicy.DEFAULT.withMaxActiveLoans(maxActiveLoans)
+        );
+    }
+
+    @Test
+    @DisplayName("Should close the loan and free the copy on return")
+    void shouldReturnBook() {
+        // Given
+        Loan loan = library.borrowBook(member, "B002").orElseThrow();
+        assertEquals(0, library.countAvailableCopies("B002"));
+
+        // When
+        Optional<Loan> closed = library.returnBook(loan.copyId());
+
+        // Then
+        assertTrue(closed.isPresent());
+        assertEquals(loan.loanId(), closed.get().loanId());
+        assertFalse(closed.get().isActive());
+        assertEquals(1, library.countAvailableCopies("B002"));
+        assertTrue(library.getActiveLoans("M001").isEmpty());
+        assertTrue(library.returnBook(loan.copyId()).isEmpty(), "Already returned");
+        assertTrue(library.returnBook("UNKNOWN").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return a crate of copies and skip ones not on loan")
+    void shouldReturnBooksInBatch() {
+        // Given
+        Loan first = library.borrowBook(member, "B001").orElseThrow();
+        Loan second = library.borrowBook(member, "B002").orElseThrow();
+
+        // When
+        List<Loan> closed = library.returnBooks(List.of(first.copyId(), "UNKNOWN", second.copyId(), first.copyId()));
+
+        // Then
+        assertEquals(List.of(first.loanId(), second.loanId()), closed.stream().map(Loan::loanId).toList());
+        assertEquals(2, library.countAvailableCopies("B001"));
+        assertEquals(1, library.countAvailableCopies("B002"));
+        assertTrue(library.listBorrowedBooks(librarian, "M001").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should list borrowed books with book details")
+    void shouldListBorrowedBooks() {
+        // Given
+        library.borrowBook(member, "B002");
+
+        // When
+        List<LoanOperations.BookLoanInfo> borrowed = library.listBorrowedBooks(librarian, "M001");
+
+        // Then
+        assertEquals(1, borrowed.size());
+        assertEquals("Design Patterns", borrowed.get(0).book().title());
+        assertEquals("C003", borrowed.get(0).copy().copyId());
+        assertEquals(BookCopyStatus.BORROWED, borrowed.get(0).copy().status());
+    }
+
+    @Test
+    @DisplayName("Should list borrowed books for many members in one call")
+    void shouldListBorrowedBooksInBatch() {
+        // Given
+        Loan loan = library.borrowBook(member, "B001").orElseThrow();
+
+        // When
+        Map<String, List<LoanOperations.BookLoanInfo>> borrowed =
+            library.listBorrowedBooks(librarian, List.of("M001", "L001"));
+
+        // Then
+        assertEquals(List.of("M001", "L001"), List.copyOf(borrowed.keySet()));
+        assertEquals(List.of(loan), borrowed.get("M001").stream().map(LoanOperations.BookLoanInfo::loan).toList());
+        assertEquals("Clean Code", borrowed.get("M001").get(0).book().title());
+        assertTrue(borrowed.get("L001").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should hash-join batch results identical to per-member results")
+    void shouldJoinBatchLikeSingleMember() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        List<Book> books = List.of(new Book("B1", "Clean Code", "Robert Martin", null));
+        List<BookCopy> copies = List.of(new BookCopy("C1", "B1", BookCopyStatus.BORROWED),
+            new BookCopy("C2", "B1", BookCopyStatus.BORROWED));
+        List<Loan> loans = List.of(
+            Loan.create("LN1", "M1", "C1", now, now.plusDays(14)),
+            Loan.create("LN2", "M2", "C2", now, now.plusDays(14)),
+            Loan.create("LN3", "M1", "MISSING", now, now.plusDays(14)),
+            Loan.create("LN4", "M2", "C1", now.minusDays(20), now.minusDays(6)).returnBook(now.minusDays(7))
+        );
+
+        // When
+        Map<String, List<LoanOperations.BookLoanInfo>> batch =
+            LoanOperations.getBorrowedBooks(loans, copies, books, List.of("M1", "M2", "M3"));
+
+        // Then
+        for (String memberId : List.of("M1", "M2", "M3")) {
+            assertEquals(LoanOperations.getBorrowedBooks(loans, copies, books, memberId), batch.get(memberId));
+        }
+        assertEquals(1, batch.get("M1").size());
+        assertEquals(1, batch.get("M2").size());
+    }
+
+    @Test
+    @DisplayName("Should refuse borrowing while the member has an overdue loan")
+    void shouldRefuseBorrowWithOverdueLoan() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        Loan overdue = Loan.create("LN1", "M001", "C003", now.minusDays(30), now.minusDays(16));
+        Loan current = Loan.create("LN2", "M001", "C002", now.minusDays(1), now.plusDays(13));
+        Loan returned = overdue.returnBook(now.minusDays(15));
+        LibraryService withLoans = new LibraryService(
+            List.of(member), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null)),
+            List.of(BookCopy.create("C001", "B001")),
+            List.of(overdue, current)
+        );
+
+        // When & Then
+        assertEquals(List.of(overdue, current), withLoans.getActiveLoans("M001"));
+        assertEquals(List.of(overdue), withLoans.getOverdueLoans("M001"));
+        assertTrue(withLoans.borrowBook(member, "B001").isEmpty());
+
+        LibraryService afterReturn = new LibraryService(
+            List.of(member), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null)),
+            List.of(BookCopy.create("C001", "B001")),
+            List.of(overdue, current, returned)
+        );
+        assertEquals(List.of(current), afterReturn.getActiveLoans("M001"));
+        assertTrue(afterReturn.borrowBook(member, "B001").isPresent());
+    }
+
+    @Test
+    @DisplayName("Should block and unblock members in place")
+    void shouldBlockAndUnblock() {
+        // When
+        User blocked = library.blockMember(librarian, "M001");
+
+        // Then
+        assertEquals(MemberStatus.BLOCKED, blocked.status());
+        assertTrue(library.borrowBook(blocked, "B001").isEmpty());
+        assertEquals(2, library.getUsers().size());
+        assertTrue(library.getUsers().contains(blocked));
+
+        User unblocked = library.unblockMember(librarian, "M001");
+        assertEquals(MemberStatus.ACTIVE, unblocked.status());
+        assertTrue(library.borrowBook(unblocked, "B001").isPresent());
+    }
+
+    @Test
+    @DisplayName("Should reject librarian operations from members")
+    void shouldRejectNonLibrarian() {
+        assertThrows(IllegalArgumentException.class, () -> library.blockMember(member, "M001"));
+        assertThrows(IllegalArgumentException.class, () -> library.blockMember(librarian, "UNKNOWN"));
+    }
+
+    @Test
+    @DisplayName("Should search by case-insensitive substring")
+    void shouldSearch() {
+        assertEquals(List.of("B001"), library.searchBooksByTitle("clean").stream().map(Book::bookId).toList());
+        assertEquals(List.of("B002"), library.searchBooksByAuthor("GANG").stream().map(Book::bookId).toList());
+        assertEquals(2, library.searchBooksByTitle("").size());
+    }
+
+    @Test
+    @DisplayName("Should autocomplete titles and authors as books are added and renamed")
+    void shouldAutocomplete() {
+        // Given
+        library.addBook(librarian, new Book("B003", "Clean Architecture", "Robert Martin", null));
+        library.addBook(librarian, new Book("B004", "Refactoring", "Martin Fowler", null));
+
+        // When & Then
+        assertEquals(List.of("Robert Martin"), library.autocomplete("rob", 5), "Two books outrank one");
+        assertEquals(List.of("Clean Code", "Clean Architecture"), library.autocomplete("CLEAN", 5));
+        assertEquals(List.of("Clean Code"), library.autocomplete("clean", 1));
+        assertEquals(List.of("Martin Fowler"), library.autocomplete("mart", 5));
+        assertTrue(library.autocomplete("xyz", 5).isEmpty());
+
+        library.addBook(librarian, new Book("B001", "Code Complete", "Steve McConnell", null));
+        assertEquals(List.of("Clean Architecture"), library.autocomplete("clean", 5), "Old title removed");
+        assertEquals(List.of("Code Complete"), library.autocomplete("co", 5));
+        assertThrows(IllegalArgumentException.class, () -> library.autocomplete("c", 0));
+    }
+
+    @Test
+    @DisplayName("Should find books by scanned ISBN and follow ISBN changes")
+    void shouldFindByIsbn() {
+        assertEquals("B001", library.findBookByIsbn("0-13-235088-2").map(Book::bookId).orElseThrow());
+        assertEquals("B002", library.findBookByIsbn("9780201633610").map(Book::bookId).orElseThrow());
+        assertTrue(library.findBookByIsbn("9780201633611").isEmpty());
+
+        library.addBook(librarian, new Book("B002", "Design Patterns", "Gang of Four", "080442957X"));
+        assertTrue(library.findBookByIsbn("0201633612").isEmpty());
+        assertEquals("B002", library.findBookByIsbn("978-0-8044-2957-3").map(Book::bookId).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should hand out snapshots that later writes do not change")
+    void shouldHandOutStableSnapshots() {
+        // Given
+        List<Book> books = library.getBooks();
+        List<User> users = library.getUsers();
+
+        // When
+        library.addBook(librarian, new Book("B003", "Refactoring", "Martin Fowler", null));
+        library.blockMember(librarian, "M001");
+
+        // Then
+        assertEquals(List.of("B001", "B002"), books.stream().map(Book::bookId).toList());
+        assertEquals(List.of(librarian, member), users);
+        assertEquals(3, library.getBooks().size());
+        assertEquals(MemberStatus.BLOCKED, library.getUsers().get(1).status());
+    }
+
+    @Test
+    @DisplayName("Should report overdue loans once, list loans due soon and clear eligibility on return")
+    void shouldTrackDueDates() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        Loan latest = Loan.create("LN1", "M001", "C001", now.minusDays(20), now.minusDays(6));
+        Loan late = Loan.create("LN2", "M001", "C002", now.minusDays(16), now.minusDays(2));
+        Loan tomorrow = Loan.create("LN3", "M002", "C003", now.minusDays(13), now.plusDays(1));
+        Loan nextWeek = Loan.create("LN4", "M002", "C004", now.minusDays(7), now.plusDays(7));
+        User other = User.createMember("M002", "Carol Student", "carol@email.com");
+        LibraryService withLoans = new LibraryService(
+            List.of(member, other), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null)),
+            List.of(
+                new BookCopy("C001", "B001", BookCopyStatus.BORROWED),
+                new BookCopy("C002", "B001", BookCopyStatus.BORROWED),
+                new BookCopy("C003", "B001", BookCopyStatus.BORROWED),
+                new BookCopy("C004", "B001", BookCopyStatus.BORROWED),
+                BookCopy.create("C005", "B001")
+            ),
+            List.of(nextWeek, late, tomorrow, latest)
+        );
+
+        // When & Then
+        assertEquals(List.of(latest, late), withLoans.drainOverdueLoans());
+        assertEquals(List.of(), withLoans.drainOverdueLoans(), "Reported once");
+        assertEquals(List.of(tomorrow), withLoans.getLoansDueBetween(now, now.plusDays(2)));
+        assertEquals(List.of(tomorrow, nextWeek), withLoans.getLoansDueBetween(now, now.plusDays(8)));
+
+        assertTrue(withLoans.borrowBook(member, "B001").isEmpty());
+        withLoans.returnBook("C001");
+        assertTrue(withLoans.borrowBook(member, "B001").isEmpty(), "Still one overdue loan");
+        withLoans.returnBook("C002");
+        assertTrue(withLoans.borrowBook(member, "B001").isPresent());
+        assertTrue(withLoans.borrowBook(other, "B001").isPresent(), "Due soon is not overdue");
+    }
+
+    @Test
+    @DisplayName("Should drain loans recorded overdue after an advance and cap unreported ones")
+    void shouldBoundOverdueNotifications() {
+        // Given - more overdue loans than are kept for the notification job
+        LocalDateTime now = LocalDateTime.now();
+        List<Loan> overdue = new ArrayList<>();
+        for (int i = 0; i < DueDateIndex.MAX_UNREPORTED + 5; i++) {
+            overdue.add(Loan.create("LN" + i, "M001", "C" + i, now.minusDays(30), now.minusDays(20).plusMinutes(i)));
+        }
+        LibraryStore store = new LibraryStore(List.of(member), List.of(), List.of(), List.of(), overdue);
+
+        // When
+        List<Loan> drained = store.drainOverdueLoans(now);
+        Loan lateArrival = Loan.create("LATE", "M002", "C-LATE", now.minusDays(9), now.minusDays(2));
+        store.putLoan(lateArrival);
+
+        // Then
+        assertEquals(overdue.subList(5, overdue.size()), drained, "Oldest notifications dropped");
+        assertEquals(List.of(lateArrival), store.drainOverdueLoans(now.plusSeconds(1)));
+        assertTrue(store.hasOverdueLoans("M002", now.plusSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("Should enforce the loan limit from the incrementally kept eligibility record")
+    void shouldEnforceLoanLimit() {
+        // Given
+        LibraryService limited = new LibraryService(
+            List.of(librarian, member), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null)),
+            List.of(BookCopy.create("C001", "B001"), BookCopy.create("C002", "B001"), BookCopy.create("C003", "B001")),
+            List.of(), new ScanBookSearch(), LibraryPolicy.DEFAULT.withMaxActiveLoans(2)
+        );
+
+        // When & Then
+        Loan first = limited.borrowBook(member, "B001").orElseThrow();
+        assertTrue(limited.borrowBook(member, "B001").isPresent());
+        assertEquals(new MemberEligibility(2, false, false), limited.getEligibility("M001"));
+        assertTrue(limited.borrowBook(member, "B001").isEmpty(), "Limit reached");
+        assertEquals(List.of(false), limited.borrowBooks(member, List.of("B001")).stream().map(BorrowResult::isBorrowed).toList());
+
+        limited.returnBook(first.copyId());
+        assertEquals(1, limited.getEligibility("M001").activeLoans());
+        limited.blockMember(librarian, "M001");
+        assertEquals(new MemberEligibility(1, false, true), limited.getEligibility("M001"));
+        assertTrue(limited.borrowBook(member, "B001").isEmpty(), "Stored block wins over a stale record");
+        limited.unblockMember(librarian, "M001");
+        assertTrue(limited.borrowBook(member, "B001").isPresent());
+        assertTrue(limited.getEligibility("L001").blocked(), "Librarians do not borrow");
+        assertTrue(limited.getEligibility("UNKNOWN").blocked());
+    }
+
+    @Test
+    @DisplayName("Should hand a returned copy to the first eligible holder in FIFO order")
+    void shouldServeHoldsInOrder() {
+        // Given - the only copy of B002 is on loan
+        User carol = User.createMember("M002", "Carol Student", "carol@email.com");
+        User dave = User.createMember("M003", "Dave Reader", "dave@email.com");
+        Loan loan = library.borrowBook(member, "B002").orElseThrow();
+
+        // When
+        Hold carolsHold = library.placeHold(carol, "B002").orElseThrow();
+        library.placeHold(dave, "B002").orElseThrow();
+        library.returnBook(loan.copyId());
+
+        // Then
+        assertFalse(carolsHold.isReady());
+        Hold ready = library.getHolds("M002").get(0);
+        assertEquals(Optional.of(ready), library.placeHold(carol, "B002"), "One hold per member and book");
+        assertEquals("C003", ready.copyId());
+        assertEquals(List.of(ready), library.drainReadyHolds());
+        assertEquals(0, library.countAvailableCopies("B002"), "Set aside, not back on the shelf");
+        assertTrue(library.borrowBook(dave, "B002").isEmpty());
+        assertEquals("C003", library.borrowBook(carol, "B002").orElseThrow().copyId());
+        assertEquals(List.of(), library.getHolds("M002"));
+        assertFalse(library.getHolds("M003").get(0).isReady());
+        assertThrows(IllegalArgumentException.class, () -> library.placeHold(carol, "UNKNOWN"));
+    }
+
+    @Test
+    @DisplayName("Should refuse holds from current borrowers and drop a waiting hold on a direct borrow")
+    void shouldKeepHoldsForMembersWithoutTheBook() {
+        // Given - Carol waits for B002 while Bob has its only copy
+        User carol = User.createMember("M002", "Carol Student", "carol@email.com");
+        library.registerUser(librarian, carol, new UserCredentials("carol@email.com", "secret99"));
+        Loan loan = library.borrowBook(member, "B002").orElseThrow();
+        library.placeHold(carol, "B002").orElseThrow();
+
+        // When - the returned copy skips Carol while she is blocked, then she borrows it directly
+        assertTrue(library.placeHold(member, "B002").isEmpty(), "Bob already has the book");
+        library.blockMember(librarian, "M002");
+        library.returnBook(loan.copyId());
+        library.unblockMember(librarian, "M002");
+        Loan carolsLoan = library.borrowBook(carol, "B002").orElseThrow();
+
+        // Then
+        assertEquals("C003", carolsLoan.copyId());
+        assertEquals(List.of(), library.getHolds("M001"));
+        assertEquals(List.of(), library.getHolds("M002"), "No longer waiting for a book she has");
+        library.returnBook(carolsLoan.copyId());
+        assertEquals(1, library.countAvailableCopies("B002"), "Not set aside for Carol's old hold");
+    }
+
+    @Test
+    @DisplayName("Should pass an unclaimed held copy on when the hold expires")
+    void shouldExpireUnclaimedHolds() {
+        // Given
+        User carol = User.createMember("M002", "Carol Student", "carol@email.com");
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 10, 0);
+        LibraryStore store = new LibraryStore(
+            List.of(member, carol), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null)),
+            List.of(new BookCopy("C001", "B001", BookCopyStatus.BORROWED)),
+            List.of(Loan.create("L1", "M003", "C001", now.minusDays(1), now.plusDays(13))),
+            LibraryPolicy.DEFAULT.withHoldPickupPeriod(Duration.ofDays(3))
+        );
+        store.placeHold(member, "B001", now);
+        store.placeHold(carol, "B001", now);
+
+        // When
+        store.returnCopy("C001", now);
+        List<Hold> expired = store.expireHolds(now.plusDays(4));
+
+        // Then
+        assertEquals(List.of(new Hold("M001", "B001", now, "C001", now.plusDays(3))), expired);
+        assertEquals(List.of(), store.holds("M001"));
+        assertEquals(now.plusDays(7), store.holds("M002").get(0).expiresAt(), "Next holder gets the copy");
+        assertEquals(BookCopyStatus.ON_HOLD, store.findCopy("C001").orElseThrow().status());
+        assertEquals(List.of(), store.expireHolds(now.plusDays(5)));
+        assertEquals(1, store.expireHolds(now.plusDays(8)).size());
+        assertEquals(BookCopyStatus.AVAILABLE, store.findCopy("C001").orElseThrow().status());
+    }
+
+    @Test
+    @DisplayName("Should drop a stale hold without lending or releasing its copy")
+    void shouldDropStaleHolds() {
+        // Given - both copies set aside, then a replayed loan puts each of them out
+        User carol = User.createMember("M002", "Carol Student", "carol@email.com");
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 10, 0);
+        LibraryStore store = new LibraryStore(
+            List.of(member, carol), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null)),
+            List.of(BookCopy.create("C001", "B001"), BookCopy.create("C002", "B001")),
+            List.of(),
+            LibraryPolicy.DEFAULT.withHoldPickupPeriod(Duration.ofDays(3))
+        );
+        String bobsCopy = store.placeHold(member, "B001", now).orElseThrow().copyId();
+        String carolsCopy = store.placeHold(carol, "B001", now).orElseThrow().copyId();
+        store.putLoan(Loan.create("L1", "M003", bobsCopy, now, now.plusDays(14)));
+        store.putLoan(Loan.create("L2", "M003", carolsCopy, now, now.plusDays(14)));
+
+        // When
+        Optional<Loan> claimed = store.claimHold("M001", "B001", now,
+            copy -> Loan.create("L3", "M001", copy.copyId(), now, now.plusDays(14)));
+        List<Hold> expired = store.expireHolds(now.plusDays(4));
+
+        // Then
+        assertTrue(claimed.isEmpty());
+        assertEquals(List.of(), expired);
+        assertEquals(List.of(), store.holds("M001"));
+        assertEquals(List.of(), store.holds("M002"));
+        assertEquals(0, store.availableCopyCount("B001"));
+        assertEquals(1, store.activeLoans("M003").stream().filter(loan -> loan.copyId().equals(bobsCopy)).count());
+    }
+
+    @Test
+    @DisplayName("Should let anyone borrow a copy whose hold went unclaimed past pickup")
+    void shouldBorrowCopyOfExpiredHold() {
+        // Given - both copies set aside for Bob with a pickup window of one millisecond
+        User carol = User.createMember("M002", "Carol Student", "carol@email.com");
+        User dave = User.createMember("M003", "Dave Reader", "dave@email.com");
+        LocalDateTime lent = LocalDateTime.now().minusDays(1);
+        LibraryService shortPickup = new LibraryService(
+            List.of(member, carol, dave), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null),
+                new Book("B002", "Design Patterns", "Gang of Four", null)),
+            List.of(new BookCopy("C001", "B001", BookCopyStatus.BORROWED),
+                new BookCopy("C002", "B002", BookCopyStatus.BORROWED)),
+            List.of(Loan.create("L1", "M002", "C001", lent, lent.plusDays(14)),
+                Loan.create("L2", "M002", "C002", lent, lent.plusDays(14))),
+            new ScanBookSearch(), LibraryPolicy.DEFAULT.withHoldPickupPeriod(Duration.ofMillis(1))
+        );
+        shortPickup.placeHold(member, "B001").orElseThrow();
+        shortPickup.placeHold(member, "B002").orElseThrow();
+        shortPickup.returnBook("C001");
+        shortPickup.returnBook("C002");
+        LocalDateTime expiresAt = shortPickup.getHolds("M001").stream()
+            .map(Hold::expiresAt).max(LocalDateTime::compareTo).orElseThrow();
+        while (!LocalDateTime.now().isAfter(expiresAt)) {
+            Thread.onSpinWait();
+        }
+
+        // When - nobody ran the expiry job
+        Optional<Loan> single = shortPickup.borrowBook(dave, "B001");
+        List<BorrowResult> batch = shortPickup.borrowBooks(dave, List.of("B002"));
+
+        // Then
+        assertEquals("C001", single.orElseThrow().copyId());
+        assertEquals("C002", batch.get(0).loan().orElseThrow().copyId());
+        assertEquals(List.of(), shortPickup.getHolds("M001"));
+    }
+}
@@ -0,0 +1,130 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Library Snapshot File Tests")
+class LibrarySnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Should restore every record, including nulls and shared strings")
+    void shouldRoundTrip() throws IOException {
+        // Given
+        User librarian = User.createLibrarian("L001", "Alice Admin", "alice@library.com");
+        User member = User.createMember("M001", "Bob Reader", "bob@email.com").block();
+        LocalDateTime borrowedAt = LocalDateTime.of(2024, 1, 1, 10, 0, 0, 123_456_789);
+        LibraryService library = new LibraryService(
+            List.of(librarian, member),
+            List.of(new UserCredentials("alice@library.com", "password123")),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", "978-0132350884"),
+                new Book("B002", "Çalıkuşu", "Reşat Nuri", null)),
+            List.of(new BookCopy("C001", "B001", BookCopyStatus.BORROWED), BookCopy.create("C002", "B001")),
+            List.of(Loan.create("L1", "M001", "C001", borrowedAt, borrowedAt.plusDays(14)),
+                new Loan("L0", "M001", "C002", borrowedAt.minusDays(30), borrowedAt.minusDays(16), borrowedAt.minusDays(20)))
+        );
+        Path file = dir.resolve("library.snapshot");
+
+        // When
+        library.saveSnapshot(file);
+        LibrarySnapshotFile.Contents contents = LibrarySnapshotFile.read(file);
+        LibraryService restored = LibraryService.restore(file, new ScanBookSearch(), LibraryPolicy.DEFAULT);
+
+        // Then
+        LibrarySnapshot snapshot = library.snapshot();
+        assertEquals(snapshot.version(), contents.version());
+        assertEquals(snapshot.users(), contents.users());
+        assertEquals(snapshot.books(), contents.books());
+        assertEquals(snapshot.bookCopies(), contents.bookCopies());
+        assertEquals(snapshot.loans(), contents.loans());
+        assertEquals(List.of(new UserCredentials("alice@library.com", "password123")), contents.credentials());
+        assertSame(contents.books().get(0).bookId(), contents.bookCopies().get(1).bookId(), "Decoded once");
+        assertEquals(Optional.of(librarian), restored.login("alice@library.com", "password123"));
+        assertEquals(1, restored.countAvailableCopies("B001"));
+        assertEquals(List.of(contents.loans().get(0)), restored.getActiveLoans("M001"));
+    }
+
+    @Test
+    @DisplayName("Should restore as one version that keeps moving forward with later writes")
+    void shouldRestoreAsOneVersion() throws IOException {
+        // Given - enough records for several vector levels and copy chunks
+        List<User> users = new ArrayList<>();
+        List<Book> books = new ArrayList<>();
+        List<BookCopy> copies = new ArrayList<>();
+        List<Loan> loans = new ArrayList<>();
+        LocalDateTime borrowedAt = LocalDateTime.now().minusDays(1);
+        for (int i = 0; i < 3_000; i++) {
+            users.add(User.createMember("M" + i, "Member " + i, "member" + i + "@email.com"));
+            books.add(new Book("B" + i, "Title " + i, "Author " + i % 50, null));
+            for (int c = 0; c < 3; c++) {
+                boolean lent = c == 0 && i % 2 == 0;
+                copies.add(new BookCopy("B" + i + "-C" + c, "B" + i, lent ? BookCopyStatus.BORROWED : BookCopyStatus.AVAILABLE));
+                if (lent) {
+                    loans.add(Loan.create("L" + i, "M" + i, "B" + i + "-C" + c, borrowedAt, borrowedAt.plusDays(14)));
+                }
+            }
+        }
+        LibraryService library = new LibraryService(users, List.of(), books, copies, loans);
+        Path file = dir.resolve("library.snapshot");
+        library.saveSnapshot(file);
+
+        // When
+        LibraryService restored = LibraryService.restore(file, new TrigramBookSearch(), LibraryPolicy.DEFAULT);
+        LibrarySnapshot first = restored.snapshot();
+        Loan loan = restored.borrowBook(users.get(1), "B1").orElseThrow();
+
+        // Then
+        LibrarySnapshot saved = library.snapshot();
+        assertEquals(saved.version(), first.version(), "One version for every record loaded");
+        assertEquals(saved.users(), first.users());
+        assertEquals(saved.books(), first.books());
+        assertEquals(saved.bookCopies(), first.bookCopies());
+        assertEquals(saved.loans(), first.loans());
+        LibrarySnapshot next = restored.snapshot();
+        assertEquals(first.version() + 1, next.version());
+        assertEquals(loan, next.loans().get(loans.size()));
+        assertEquals(BookCopyStatus.BORROWED, next.bookCopies().get(3).status());
+        assertEquals(saved.bookCopies(), first.bookCopies(), "Earlier version unchanged");
+        assertEquals(List.of(books.get(2_999)), restored.searchBooksByTitle("title 2999"));
+        assertEquals(List.of("Author 7"), restored.autocomplete("author 7", 1));
+    }
+
+    @Test
+    @DisplayName("Should reject corrupted, truncated and foreign files")
+    void shouldDetectCorruption() throws IOException {
+        // Given
+        Path file = dir.resolve("library.snapshot");
+        new LibraryService(
+            List.of(User.createMember("M001", "Bob Reader", "bob@email.com")), List.of(),
+            List.of(new Book("B001", "Clean Code", "Robert Martin", null)),
+            List.of(BookCopy.create("C001", "B001")), List.of()
+        ).saveSnapshot(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // When & Then
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] corrupted = bytes.clone();
+            corrupted[i] ^= 0x10;
+            Files.write(file, corrupted);
+            assertThrows(IOException.class, () -> LibrarySnapshotFile.read(file), "Flipped bit at byte " + i);
+        }
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> LibrarySnapshotFile.read(file));
+        Files.writeString(file, "userId,name,email");
+        assertThrows(IOException.class, () -> LibrarySnapshotFile.read(file));
+    }
+}
@@ -0,0 +1,81 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Persistent Vector Tests")
+class PersistentVectorTest {
+
+    @Test
+    @DisplayName("Should behave like a list while every earlier version stays unchanged")
+    void shouldKeepEarlierVersions() {
+        // Given
+        Random random = new Random(3);
+        List<Integer> expected = new ArrayList<>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> expectedVersions = new ArrayList<>();
+
+        // When - enough appends for a three-level trie, interleaved with replacements
+        for (int i = 0; i < 40_000; i++) {
+            if (!expected.isEmpty() && random.nextInt(4) == 0) {
+                int index = random.nextInt(expected.size());
+                expected.set(index, -i);
+                vector = vector.with(index, -i);
+            } else {
+                expected.add(i);
+                vector = vector.append(i);
+            }
+            if (i % 4_000 == 0) {
+                versions.add(vector);
+                expectedVersions.add(List.copyOf(expected));
+            }
+        }
+
+        // Then
+        assertEquals(expected, vector);
+        for (int v = 0; v < versions.size(); v++) {
+            assertEquals(expectedVersions.get(v), versions.get(v));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> PersistentVector.empty().get(0));
+        assertThrows(UnsupportedOperationException.class, () -> PersistentVector.<Integer>empty().add(1));
+    }
+
+    @Test
+    @DisplayName("Should build a vector from a list that keeps growing like an appended one")
+    void shouldCopyList() {
+        for (int size : new int[] {0, 1, 31, 32, 33, 64, 1_024, 1_056, 1_057, 33_000, 33_825}) {
+            // Given
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                expected.add(i);
+            }
+
+            // When
+            PersistentVector<Integer> copied = PersistentVector.copyOf(expected);
+            PersistentVector<Integer> grown = copied;
+            for (int i = 0; i < 2_000; i++) {
+                grown = grown.append(size + i);
+                expected.add(size + i);
+            }
+            if (size > 0) {
+                grown = grown.with(0, -1).with(size - 1, -2);
+                expected.set(0, -1);
+                expected.set(size - 1, -2);
+            }
+
+            // Then
+            assertEquals(size, copied.size());
+            assertEquals(expected, grown, "Size " + size);
+            for (int i = 0; i < size; i++) {
+                assertEquals(i, copied.get(i), "Earlier version unchanged");
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Session Store Tests")
+class SessionStoreTest {
+
+    @Test
+    @DisplayName("Should resolve tokens until they expire")
+    void shouldExpireSessions() {
+        // Given
+        MutableClock clock = new MutableClock();
+        SessionStore sessions = new SessionStore(Duration.ofMinutes(30), clock);
+        String token = sessions.open("M001");
+
+        // When & Then
+        assertEquals(Optional.of("M001"), sessions.resolve(token));
+        clock.advance(Duration.ofMinutes(29));
+        assertEquals(Optional.of("M001"), sessions.resolve(token));
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(sessions.resolve(token).isEmpty());
+        assertEquals(0, sessions.size(), "Expired session evicted on sight");
+    }
+
+    @Test
+    @DisplayName("Should evict expired sessions in a sweep and close on demand")
+    void shouldEvictAndClose() {
+        // Given
+        MutableClock clock = new MutableClock();
+        SessionStore sessions = new SessionStore(Duration.ofMinutes(10), clock);
+        sessions.open("M001");
+        clock.advance(Duration.ofMinutes(5));
+        String live = sessions.open("M002");
+        String closed = sessions.open("M003");
+
+        // When
+        clock.advance(Duration.ofMinutes(6));
+        sessions.close(closed);
+
+        // Then
+        assertEquals(1, sessions.evictExpired());
+        assertEquals(Optional.of("M002"), sessions.resolve(live));
+        assertTrue(sessions.resolve(closed).isEmpty());
+        assertNotEquals(sessions.open("M002"), live, "Tokens are unique");
+    }
+
+    @Test
+    @DisplayName("Should resolve a session to the current user record")
+    void shouldSeeBlocksThroughSession() {
+        // Given
+        User librarian = User.createLibrarian("L001", "Alice Admin", "alice@library.com");
+        User member = User.createMember("M001", "Bob Reader", "bob@email.com");
+        LibraryService library = new LibraryService(
+            List.of(librarian, member),
+            List.of(new UserCredentials("bob@email.com", "password123")),
+            List.of(), List.of(), List.of()
+        );
+        String token = library.openSession("bob@email.com", "password123").orElseThrow();
+
+        // When
+        library.blockMember(librarian, "M001");
+
+        // Then
+        assertEquals(MemberStatus.BLOCKED, library.resolveSession(token).orElseThrow().status());
+        assertTrue(library.openSession("bob@email.com", "wrong-password").isEmpty());
+        library.closeSession(token);
+        assertTrue(library.resolveSession(token).isEmpty());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package jug.istanbul.library;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Trigram Book Search Tests")
+class TrigramBookSearchTest {
+
+    private static final String[] WORDS = {
+        "clean", "code", "design", "patterns", "domain", "driven", "java", "effective",
+        "İstanbul", "Straße", "refactoring", "the", "art", "of", "programming", "aa"
+    };
+
+    @Test
+    @DisplayName("Should return exactly the same matches as the scanning search")
+    void shouldMatchScanningSearch() {
+        // Given
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>();
+        TrigramBookSearch index = new TrigramBookSearch();
+        for (int i = 0; i < 2_000; i++) {
+            Book book = new Book("B" + i, randomText(random, 4), randomText(random, 2), null);
+            books.add(book);
+            index.add(book);
+        }
+
+        // When & Then
+        List<String> queries = new ArrayList<>(List.of("", "a", "Co", "CODE", "ean co", "xyz", "aaa", "i̇st", "ß"));
+        for (int i = 0; i < 300; i++) {
+            String text = randomText(random, 2);
+            int start = random.nextInt(text.length());
+            queries.add(text.substring(start, Math.min(text.length(), start + 1 + random.nextInt(8))));
+        }
+        for (String query : queries) {
+            assertEquals(BookSearchOperations.searchByTitle(books, query), index.searchByTitle(query), query);
+            assertEquals(BookSearchOperations.searchByAuthor(books, query), index.searchByAuthor(query), query);
+        }
+    }
+
+    @Test
+    @DisplayName("Should page through exactly the full result set with either backend")
+    void shouldPageThroughAllMatches() {
+        // Given
+        Random random = new Random(7);
+        List<BookSearchBackend> backends = List.of(new TrigramBookSearch(), new ScanBookSearch());
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Book book = new Book("B" + i, randomText(random, 3), randomText(random, 2), null);
+            books.add(book);
+            backends.forEach(backend -> backend.add(book));
+        }
+
+        // When & Then
+        for (BookSearchBackend backend : backends) {
+            for (String query : List.of("a", "code", "the art", "zzz", "")) {
+                List<Book> paged = new ArrayList<>();
+                String cursor = null;
+                do {
+                    SearchPage page = backend.searchByTitle(query, cursor, 7);
+                    assertTrue(page.books().size() <= 7);
+                    assertTrue(!page.hasMore() || page.books().size() == 7, "Only the last page is short");
+                    paged.addAll(page.books());
+                    cursor = page.nextCursor().orElse(null);
+                } while (cursor != null);
+                assertEquals(BookSearchOperations.searchByTitle(books, query), paged, query);
+            }
+            SearchPage authors = backend.searchByAuthor("java", null, 3);
+            assertEquals(BookSearchOperations.streamByAuthor(books, "java").limit(3).toList(), authors.books());
+            assertThrows(IllegalArgumentException.class, () -> backend.searchByTitle("a", "not a cursor!", 5));
+            assertThrows(IllegalArgumentException.class, () -> backend.searchByTitle("a", null, 0));
+        }
+    }
+
+    @Test
+    @DisplayName("Should rank typo-tolerant matches best first")
+    void shouldRankFuzzyMatches() {
+        // Given
+        TrigramBookSearch index = new TrigramBookSearch();
+        index.add(new Book("B1", "Clean Architecture", "Robert Martin", null));
+        index.add(new Book("B2", "Clean Code", "Robert Martin", null));
+        index.add(new Book("B3", "Code Complete", "Steve McConnell", null));
+        index.add(new Book("B4", "Design Patterns", "Gang of Four", null));
+
+        // When
+        List<ScoredBook> ranked = index.searchRanked("clen code", 2);
+
+        // Then
+        assertEquals(List.of("B2", "B3"), ranked.stream().map(scored -> scored.book().bookId()).toList());
+        assertTrue(ranked.get(0).score() > ranked.get(1).score());
+        assertEquals("B3", index.searchRanked("code", 1).get(0).book().bookId(), "Prefix bonus");
+        assertEquals("B4", index.searchRanked("gang of fuor", 1).get(0).book().bookId(), "Author typo");
+        assertTrue(index.searchRanked("xyzzy", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should rank identically with the trigram and scanning backends")
+    void shouldRankLikeScanningBackend() {
+        // Given
+        Random random = new Random(11);
+        TrigramBookSearch index = new TrigramBookSearch();
+        ScanBookSearch scan = new ScanBookSearch();
+        for (int i = 0; i < 1_000; i++) {
+            Book book = new Book("B" + (i % 900), randomText(random, 3), randomText(random, 2), null);
+            index.add(book);
+            scan.add(book);
+        }
+
+        // When & Then
+        for (String query : List.of("clean cod", "desgn patterns", "ART OF", "a", "st", "refactoring the", "qqq")) {
+            assertEquals(scan.searchRanked(query, 10), index.searchRanked(query, 10), query);
+        }
+    }
+
+    @Test
+    @DisplayName("Should re-index a book added again under the same id")
+    void shouldReindexExistingBook() {
+        // Given
+        TrigramBookSearch index = new TrigramBookSearch();
+        index.add(new Book("B1", "Clean Code", "Robert Martin", null));
+        index.add(new Book("B2", "Code Complete", "Steve McConnell", null));
+
+        // When
+        Book renamed = new Book("B1", "Clean Architecture", "Robert Martin", null);
+        index.add(renamed);
+
+        // Then - short queries read their own postings, which must follow the rename too
+        assertEquals(List.of("B2"), index.searchByTitle("code").stream().map(Book::bookId).toList());
+        assertEquals(List.of(renamed), index.searchByTitle("architecture"));
+        assertEquals(List.of("B2"), index.searchByTitle("od").stream().map(Book::bookId).toList());
+        assertEquals(List.of(renamed), index.searchByTitle("ar"));
+        assertEquals(List.of(renamed), index.searchByTitle("h"));
+        assertEquals(List.of("B1"), index.searchRanked("ar", 5).stream().map(scored -> scored.book().bookId()).toList());
+    }
+
+    @Test
+    @DisplayName("Should index a batch exactly like adding its books one by one")
+    void shouldAddAllLikeAddingEach() {
+        // Given - ids repeat within the batch and across the earlier books
+        Random random = new Random(13);
+        List<Book> earlier = new ArrayList<>();
+        List<Book> batch = new ArrayList<>();
+        for (int i = 0; i < 1_500; i++) {
+            Book book = new Book("B" + random.nextInt(1_200), randomText(random, 3), randomText(random, 2), null);
+            (i < 300 ? earlier : batch).add(book);
+        }
+        TrigramBookSearch oneByOne = new TrigramBookSearch();
+        TrigramBookSearch bulk = new TrigramBookSearch();
+        ScanBookSearch scan = new ScanBookSearch();
+        earlier.forEach(oneByOne::add);
+        earlier.forEach(bulk::add);
+        earlier.forEach(scan::add);
+
+        // When
+        batch.forEach(oneByOne::add);
+        bulk.addAll(batch);
+        batch.forEach(scan::add);
+
+        // Then
+        for (String query : List.of("clean", "ART OF", "code", "aa", "a", "st", "desgn patterns", "qqq")) {
+            assertEquals(scan.searchByTitle(query), bulk.searchByTitle(query), query);
+            assertEquals(scan.searchRanked(query, 20), bulk.searchRanked(query, 20), query);
+            assertEquals(oneByOne.searchByTitle(query), bulk.searchByTitle(query), query);
+            assertEquals(oneByOne.searchByAuthor(query), bulk.searchByAuthor(query), query);
+            assertEquals(oneByOne.searchRanked(query, 20), bulk.searchRanked(query, 20), query);
+        }
+    }
+
+    @Test
+    @DisplayName("Should be usable as the LibraryService search backend")
+    void shouldBackLibraryService() {
+        // Given
+        User librarian = User.createLibrarian("L1", "Alice", "alice@library.com");
+        LibraryService library = new LibraryService(
+            List.of(librarian), List.of(),
+            List.of(new Book("B1", "Clean Code", "Robert Martin", null)),
+            List.of(), List.of(),
+            new TrigramBookSearch()
+        );
+
+        // When
+        library.addBook(librarian, new Book("B2", "Clean Architecture", "Robert Martin", null));
+
+        // Then
+        assertEquals(2, library.searchBooksByTitle("clean").size());
+        assertEquals(2, library.searchBooksByAuthor("MARTIN").size());
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            text.append(random.nextBoolean() ? word : word.toUpperCase());
+        }
+        return text.toString();
+    }
+}
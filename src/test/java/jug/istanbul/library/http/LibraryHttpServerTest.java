@@ -0,0 +1,123 @@
+package jug.istanbul.library.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Library HTTP Server Tests")
+class LibraryHttpServerTest {
+
+    private LibraryHttpServer server;
+    private HttpClient http;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LibraryHttpServer(LibraryHttpServer.demoLibrary(3, 10, 1), new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        http = HttpClient.newHttpClient();
+        baseUrl = "http://127.0.0.1:" + server.port();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Should serve login, search, borrow, list and return over HTTP")
+    void shouldServeMemberWorkflow() throws Exception {
+        // Given
+        String memberToken = token("member0@library.com");
+        String librarianToken = token("librarian@library.com");
+
+        // When & Then
+        HttpResponse<String> search = http.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/books?title=Title%207")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, search.statusCode());
+        assertTrue(search.body().contains("\"bookId\":\"B7\""));
+        HttpResponse<String> page = http.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/books?title=Title&limit=4")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, page.statusCode());
+        assertTrue(page.body().contains("\"nextCursor\":\"4\""));
+
+        HttpResponse<String> loan = post("/borrow", memberToken, "bookId=B7");
+        assertEquals(200, loan.statusCode());
+        assertTrue(loan.body().contains("\"copyId\":\"B7-C0\""));
+        assertEquals(409, post("/borrow", memberToken, "bookId=B7").statusCode(), "Only copy is lent");
+
+        HttpResponse<String> loans = get("/loans?memberId=M0", librarianToken);
+        assertEquals(200, loans.statusCode());
+        assertTrue(loans.body().contains("\"title\":\"Title 7\""));
+        assertEquals(403, get("/loans?memberId=M0", memberToken).statusCode(), "Members cannot list loans");
+
+        assertEquals(403, post("/return", token("member1@library.com"), "copyId=B7-C0").statusCode(), "Not their loan");
+        assertEquals(200, post("/return", memberToken, "copyId=B7-C0").statusCode());
+        assertEquals(404, post("/return", memberToken, "copyId=B7-C0").statusCode());
+        assertEquals(200, post("/borrow", memberToken, "bookId=B7").statusCode());
+        assertEquals(200, post("/return", librarianToken, "copyId=B7-C0").statusCode(), "Librarians return any copy");
+    }
+
+    @Test
+    @DisplayName("Should apply blocks to live sessions and reject missing sessions")
+    void shouldBlockThroughHttp() throws Exception {
+        // Given
+        String memberToken = token("member1@library.com");
+        String librarianToken = token("librarian@library.com");
+
+        // When
+        HttpResponse<String> blocked = post("/block", librarianToken, "memberId=M1");
+
+        // Then
+        assertEquals(200, blocked.statusCode());
+        assertTrue(blocked.body().contains("\"status\":\"BLOCKED\""));
+        assertEquals(403, post("/block", memberToken, "memberId=M2").statusCode());
+        assertEquals(409, post("/borrow", memberToken, "bookId=B1").statusCode());
+        assertEquals(200, post("/unblock", librarianToken, "memberId=M1").statusCode());
+        assertEquals(200, post("/borrow", memberToken, "bookId=B1").statusCode());
+        assertEquals(401, post("/borrow", "not-a-token", "bookId=B2").statusCode());
+        assertEquals(401, post("/login", null, "email=member1@library.com&password=wrong-password").statusCode());
+    }
+
+    @Test
+    @DisplayName("Should report latency percentiles from the load generator")
+    void shouldRunLoadGenerator() throws Exception {
+        LibraryLoadGenerator.Report report = LibraryLoadGenerator.run(baseUrl, 3, 1);
+
+        assertTrue(report.requests() > 0);
+        assertEquals(0, report.errors());
+        assertTrue(report.p50Millis() <= report.p99Millis());
+        assertTrue(report.p99Millis() <= report.p999Millis());
+    }
+
+    private String token(String email) throws Exception {
+        String body = post("/login", null, "email=" + email + "&password=password123").body();
+        return body.substring(body.indexOf(":\"") + 2, body.lastIndexOf('"'));
+    }
+
+    private HttpResponse<String> post(String path, String token, String form) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Authorization", "Bearer " + token).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+}